@@ -0,0 +1,41 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+final class BenchmarkStores {
+
+    static final String MEMORY = "memory";
+    static final String MAPPED = "mapped";
+
+    private BenchmarkStores() {}
+
+    static CapacitorMMKV create(String backend) {
+        CapacitorMMKV mmkv = new CapacitorMMKV(createBackend(backend));
+        mmkv.initialize();
+        return mmkv;
+    }
+
+    static StorageBackend createBackend(String backend) {
+        switch (backend) {
+            case MEMORY:
+                return new InMemoryStorageBackend();
+            case MAPPED:
+                return new MappedFileStorageBackend(tempDir());
+            default:
+                throw new IllegalArgumentException("Unknown backend: " + backend);
+        }
+    }
+
+    private static File tempDir() {
+        try {
+            File dir = Files.createTempDirectory("mmkv-bench").toFile();
+            dir.deleteOnExit();
+            return dir;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConcurrentAccessBenchmark {
+
+    private static final int KEY_COUNT = 1024;
+    private static final int INSTANCE_COUNT = 16;
+
+    @Param({ BenchmarkStores.MEMORY, BenchmarkStores.MAPPED })
+    public String backend;
+
+    private CapacitorMMKV mmkv;
+    private String[] keys;
+    private String[] instanceIds;
+
+    @Setup
+    public void setUp() {
+        mmkv = BenchmarkStores.create(backend);
+        keys = new String[KEY_COUNT];
+        instanceIds = new String[INSTANCE_COUNT];
+        for (int i = 0; i < INSTANCE_COUNT; i++) {
+            instanceIds[i] = "shard-" + i;
+        }
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = "key-" + i;
+            mmkv.setString(keys[i], "value-" + i, "shared", null);
+            mmkv.setString(keys[i], "value-" + i, instanceIds[i % INSTANCE_COUNT], null);
+        }
+    }
+
+    private String randomKey() {
+        return keys[ThreadLocalRandom.current().nextInt(KEY_COUNT)];
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public String reader() {
+        return mmkv.getString(randomKey(), "shared", null);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void writer() {
+        mmkv.setString(randomKey(), "updated", "shared", null);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String sharedInstanceReads() {
+        return mmkv.getString(randomKey(), "shared", null);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String spreadInstanceReads() {
+        int index = ThreadLocalRandom.current().nextInt(KEY_COUNT);
+        return mmkv.getString(keys[index], instanceIds[index % INSTANCE_COUNT], null);
+    }
+}
@@ -0,0 +1,71 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class KeyResolutionBenchmark {
+
+    private static final int INSTANCE_COUNT = 64;
+
+    private CapacitorMMKV mmkv;
+    private String[] instanceIds;
+    private int next;
+    private int handle;
+
+    @Setup
+    public void setUp() {
+        mmkv = BenchmarkStores.create(BenchmarkStores.MEMORY);
+        instanceIds = new String[INSTANCE_COUNT];
+        for (int i = 0; i < INSTANCE_COUNT; i++) {
+            instanceIds[i] = "instance-" + i;
+            mmkv.getMMKVInstance(instanceIds[i]);
+        }
+        mmkv.setInt("position", 42, "instance-0", "player");
+        handle = mmkv.openHandle("instance-0", "player", "position");
+    }
+
+    @Benchmark
+    public String namespacedKey() {
+        return mmkv.getNamespacedKey("token", "auth");
+    }
+
+    @Benchmark
+    public String plainKey() {
+        return mmkv.getNamespacedKey("token", null);
+    }
+
+    @Benchmark
+    public KeyValueStore defaultInstance() {
+        return mmkv.getMMKVInstance(null);
+    }
+
+    @Benchmark
+    public KeyValueStore namedInstance() {
+        return mmkv.getMMKVInstance("instance-0");
+    }
+
+    @Benchmark
+    public KeyValueStore rotatingInstances() {
+        next = (next + 1) & (INSTANCE_COUNT - 1);
+        return mmkv.getMMKVInstance(instanceIds[next]);
+    }
+
+    @Benchmark
+    public Integer getByKey() {
+        return mmkv.getInt("position", "instance-0", "player");
+    }
+
+    @Benchmark
+    public Object getByHandle() {
+        return mmkv.getByHandle(handle, null, ValueType.INT);
+    }
+}
@@ -0,0 +1,88 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// A small namespace living next to a large one, so the cost of scanning the whole instance is visible
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NamespaceScanBenchmark {
+
+    private static final String ID = "scan";
+    private static final String TARGET = "target";
+    private static final String OTHER = "other";
+    private static final int TARGET_SIZE = 10;
+    // clearAll runs in batches of this many calls, each emptying a namespace of its own, so refilling
+    // happens once per iteration instead of around every timed call
+    private static final int CLEAR_BATCH = 1000;
+
+    @Param({ "1000", "100000", "1000000" })
+    public int keyCount;
+
+    @Param({ BenchmarkStores.MEMORY, BenchmarkStores.MAPPED })
+    public String backend;
+
+    private CapacitorMMKV mmkv;
+    private final String[] clearNamespaces = new String[CLEAR_BATCH];
+    private int cleared; // namespaces emptied by clearAll since the last refill
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mmkv = BenchmarkStores.create(backend);
+        for (int i = 0; i < keyCount; i++) {
+            mmkv.setInt("key-" + i, i, ID, OTHER);
+        }
+        fill(TARGET);
+        for (int i = 0; i < CLEAR_BATCH; i++) {
+            clearNamespaces[i] = TARGET + "-" + i;
+            fill(clearNamespaces[i]);
+            // Indexes the namespace now, so no iteration pays for the initial scan
+            mmkv.count(ID, clearNamespaces[i]);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void refillCleared() {
+        for (int i = 0; i < Math.min(cleared, CLEAR_BATCH); i++) {
+            fill(clearNamespaces[i]);
+        }
+        cleared = 0;
+    }
+
+    private void fill(String namespace) {
+        for (int i = 0; i < TARGET_SIZE; i++) {
+            mmkv.setString("key-" + i, "value-" + i, ID, namespace);
+        }
+    }
+
+    @Benchmark
+    public String[] getAllKeys() {
+        return mmkv.getAllKeys(ID, TARGET);
+    }
+
+    @Benchmark
+    public int count() {
+        return mmkv.count(ID, TARGET);
+    }
+
+    // Scored per batch in milliseconds, which is microseconds per call
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(batchSize = CLEAR_BATCH)
+    @Measurement(batchSize = CLEAR_BATCH)
+    public void clearAll() {
+        mmkv.clearAll(ID, clearNamespaces[cleared++ % CLEAR_BATCH]);
+    }
+}
@@ -0,0 +1,96 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TypedAccessBenchmark {
+
+    private static final String ID = "typed";
+    private static final String NAMESPACE = "settings";
+
+    @Param({ BenchmarkStores.MEMORY, BenchmarkStores.MAPPED })
+    public String backend;
+
+    @Param({ "0", "65536" })
+    public long readCacheBytes;
+
+    private CapacitorMMKV mmkv;
+    private final byte[] payload = new byte[256];
+    private int counter;
+
+    @Setup
+    public void setUp() {
+        mmkv = BenchmarkStores.create(backend);
+        mmkv.configureReadCache(readCacheBytes);
+        mmkv.setString("user", "{\"id\":42,\"name\":\"Ada Lovelace\"}", ID, NAMESPACE);
+        mmkv.setInt("launches", 7, ID, NAMESPACE);
+        mmkv.setBool("darkMode", true, ID, NAMESPACE);
+        mmkv.setFloat("scale", 1.25f, ID, NAMESPACE);
+        mmkv.setBytes("blob", payload, ID, NAMESPACE);
+    }
+
+    @Benchmark
+    public String getString() {
+        return mmkv.getString("user", ID, NAMESPACE);
+    }
+
+    @Benchmark
+    public String getStringMissing() {
+        return mmkv.getString("absent", ID, NAMESPACE);
+    }
+
+    @Benchmark
+    public Integer getInt() {
+        return mmkv.getInt("launches", ID, NAMESPACE);
+    }
+
+    @Benchmark
+    public Boolean getBool() {
+        return mmkv.getBool("darkMode", ID, NAMESPACE);
+    }
+
+    @Benchmark
+    public Float getFloat() {
+        return mmkv.getFloat("scale", ID, NAMESPACE);
+    }
+
+    @Benchmark
+    public byte[] getBytes() {
+        return mmkv.getBytes("blob", ID, NAMESPACE);
+    }
+
+    @Benchmark
+    public void setString() {
+        mmkv.setString("draft", "draft text", ID, NAMESPACE);
+    }
+
+    @Benchmark
+    public void setInt() {
+        mmkv.setInt("counter", counter++, ID, NAMESPACE);
+    }
+
+    @Benchmark
+    public void setBool() {
+        mmkv.setBool("toggle", (counter++ & 1) == 0, ID, NAMESPACE);
+    }
+
+    @Benchmark
+    public void setFloat() {
+        mmkv.setFloat("slider", counter++ * 0.5f, ID, NAMESPACE);
+    }
+
+    @Benchmark
+    public void setBytes() {
+        mmkv.setBytes("blob", payload, ID, NAMESPACE);
+    }
+}
@@ -0,0 +1,91 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keys read during the first moments of a session, in first-read order, so the next launch can prewarm
+ * them. Stored as: version byte, entry count, then per entry the type ordinal and the instance id
+ * ("" for the default instance), namespace ("" for none) and key as modified UTF-8.
+ */
+final class AccessProfile {
+
+    private static final int VERSION = 1;
+
+    private final int maxKeys;
+    private final ConcurrentHashMap<String, BatchEntry> entries = new ConcurrentHashMap<>();
+    private final List<BatchEntry> order = new ArrayList<>(); // guarded by itself
+
+    AccessProfile(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    void record(String mmkvId, String namespace, String key, ValueType type) {
+        if (entries.size() >= maxKeys) {
+            return;
+        }
+        String id = (mmkvId == null ? "" : mmkvId) + '\u0000' + (namespace == null ? "" : namespace) + '\u0000' + key;
+        if (entries.containsKey(id)) {
+            return;
+        }
+        BatchEntry entry = new BatchEntry(key, type, null, mmkvId, namespace, null);
+        if (entries.putIfAbsent(id, entry) == null) {
+            synchronized (order) {
+                order.add(entry);
+            }
+        }
+    }
+
+    byte[] encode() {
+        List<BatchEntry> snapshot;
+        synchronized (order) {
+            snapshot = new ArrayList<>(order);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeInt(snapshot.size());
+            for (BatchEntry entry : snapshot) {
+                out.writeByte(entry.type.ordinal());
+                out.writeUTF(entry.mmkvId == null ? "" : entry.mmkvId);
+                out.writeUTF(entry.namespace == null ? "" : entry.namespace);
+                out.writeUTF(entry.key);
+            }
+        } catch (IOException e) {
+            // Writing to a byte array doesn't fail
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static List<BatchEntry> decode(byte[] data) throws IOException {
+        List<BatchEntry> entries = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                return entries;
+            }
+            int count = in.readInt();
+            ValueType[] types = ValueType.values();
+            for (int i = 0; i < count; i++) {
+                int type = in.readUnsignedByte();
+                String mmkvId = in.readUTF();
+                String namespace = in.readUTF();
+                String key = in.readUTF();
+                if (type >= types.length) {
+                    throw new IOException("Unknown value type " + type);
+                }
+                entries.add(
+                    new BatchEntry(key, types[type], null, mmkvId.isEmpty() ? null : mmkvId, namespace.isEmpty() ? null : namespace, null)
+                );
+            }
+        }
+        return entries;
+    }
+}
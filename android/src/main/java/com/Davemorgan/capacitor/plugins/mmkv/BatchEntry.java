@@ -0,0 +1,31 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+public class BatchEntry {
+
+    public final String key;
+    public final ValueType type;
+    public final Object value;
+    public final String mmkvId;
+    public final String namespace;
+    public final String alias;
+
+    public BatchEntry(String key, ValueType type, Object value, String mmkvId, String namespace, String alias) {
+        this.key = key;
+        this.type = type;
+        this.value = value;
+        this.mmkvId = mmkvId;
+        this.namespace = namespace;
+        this.alias = alias;
+    }
+
+    // Name under which a batch read reports this entry's value
+    public String resultKey() {
+        if (alias != null && !alias.isEmpty()) {
+            return alias;
+        }
+        if (namespace == null || namespace.isEmpty()) {
+            return key;
+        }
+        return namespace + ":" + key;
+    }
+}
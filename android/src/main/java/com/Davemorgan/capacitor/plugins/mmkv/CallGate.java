@@ -0,0 +1,64 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import java.util.ArrayDeque;
+
+/**
+ * Holds calls that arrive before initialization has completed and replays them, in arrival order, on
+ * the thread that calls open(). A replayed call passes the gate again on its way in: park() lets the
+ * replaying thread through, while calls arriving from other threads during the replay are queued
+ * behind the backlog so they can't overtake it.
+ */
+final class CallGate {
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Runnable> parked = new ArrayDeque<>(); // guarded by lock
+    private int parkedCount; // guarded by lock
+    private volatile boolean open;
+    private volatile Thread replayThread; // set while open() drains the backlog
+
+    boolean isOpen() {
+        return open;
+    }
+
+    // Returns true when call was parked, false when the caller should run it now
+    boolean park(Runnable call) {
+        if (open || Thread.currentThread() == replayThread) {
+            return false;
+        }
+        synchronized (lock) {
+            if (open) {
+                return false;
+            }
+            parked.add(call);
+            parkedCount++;
+            return true;
+        }
+    }
+
+    // Replays the parked calls on the calling thread, then lets every call through
+    void open() {
+        replayThread = Thread.currentThread();
+        try {
+            while (true) {
+                Runnable next;
+                synchronized (lock) {
+                    next = parked.poll();
+                    if (next == null) {
+                        open = true;
+                        return;
+                    }
+                }
+                next.run();
+            }
+        } finally {
+            replayThread = null;
+        }
+    }
+
+    // Calls parked since creation, including those already replayed
+    int parkedCount() {
+        synchronized (lock) {
+            return parkedCount;
+        }
+    }
+}
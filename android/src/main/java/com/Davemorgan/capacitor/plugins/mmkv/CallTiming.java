@@ -0,0 +1,91 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import java.util.List;
+
+/**
+ * Where the time of one plugin call went, for the opt-in per-call timing mode. The phases are laps:
+ * parse ends once the arguments are read, resolve once the instance (and namespace store) the call
+ * uses is open, storage when the operation returns and serialize when the result is built. queueWait
+ * is the time since JavaScript stamped the call with sentAt, or -1 when it didn't. OFF does nothing,
+ * so calls can be written the same way whether timing is on or not.
+ */
+final class CallTiming {
+
+    static final CallTiming OFF = new CallTiming(false, -1);
+
+    private final boolean on;
+    final long queueWaitNanos;
+    private long lap;
+    long parseNanos;
+    long resolveNanos;
+    long storageNanos;
+    long serializeNanos;
+
+    private CallTiming(boolean on, long queueWaitNanos) {
+        this.on = on;
+        this.queueWaitNanos = queueWaitNanos;
+        this.lap = on ? System.nanoTime() : 0;
+    }
+
+    static CallTiming start(long queueWaitNanos) {
+        return new CallTiming(true, queueWaitNanos);
+    }
+
+    boolean isOn() {
+        return on;
+    }
+
+    void parsed() {
+        if (on) {
+            parseNanos = lap();
+        }
+    }
+
+    // Opens what the operation will use ahead of it, so the operation's own lookups are warm and the
+    // cost of mapping files shows up as resolve instead of storage
+    void resolve(CapacitorMMKV implementation, String mmkvId, String namespace) {
+        if (on) {
+            implementation.resolveInstance(mmkvId, namespace);
+            resolveNanos = lap();
+        }
+    }
+
+    void resolve(CapacitorMMKV implementation, List<BatchEntry> entries) {
+        if (on) {
+            for (BatchEntry entry : entries) {
+                implementation.resolveInstance(entry.mmkvId, entry.namespace);
+            }
+            resolveNanos = lap();
+        }
+    }
+
+    void resolveOperations(CapacitorMMKV implementation, List<PipelineOperation> operations) {
+        if (on) {
+            for (PipelineOperation operation : operations) {
+                if (operation.error == null) {
+                    implementation.resolveInstance(operation.mmkvId, operation.namespace);
+                }
+            }
+            resolveNanos = lap();
+        }
+    }
+
+    void stored() {
+        if (on) {
+            storageNanos = lap();
+        }
+    }
+
+    void serialized() {
+        if (on) {
+            serializeNanos = lap();
+        }
+    }
+
+    private long lap() {
+        long now = System.nanoTime();
+        long elapsed = now - lap;
+        lap = now;
+        return elapsed;
+    }
+}
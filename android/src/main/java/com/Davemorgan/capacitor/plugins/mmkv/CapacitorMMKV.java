@@ -1,10 +1,20 @@
 package com.Davemorgan.capacitor.plugins.mmkv;
 
-import android.util.Log;
-import com.tencent.mmkv.MMKV;
-import com.tencent.mmkv.MMKVLogLevel;
-import com.getcapacitor.JSObject;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 public class CapacitorMMKV {
 
@@ -12,91 +22,427 @@ public class CapacitorMMKV {
         void onLog(int level, String message, String mmkvId);
     }
 
-    private MMKV defaultMMKV;
-    private ConcurrentHashMap<String, MMKV> mmkvInstances = new ConcurrentHashMap<>();
-    private MMKVLogListener logListener;
-    private int currentLogLevel = MMKVLogLevel.LevelNone; // Default to off
+    // Receives buffered log entries in batches, on a background thread. dropped counts the entries
+    // discarded since the previous batch.
+    public interface MMKVLogBatchListener {
+        void onLogs(List<LogEntry> entries, long dropped);
+    }
+
+    public interface MetricsListener {
+        void onMetrics(MetricsSnapshot metrics);
+    }
+
+    public interface KeyChangeListener {
+        void onKeyChanges(List<KeyChange> changes);
+    }
+
+    // Log levels as exposed to JavaScript (MMKVLogLevel in definitions.ts)
+    public static final int LOG_LEVEL_NONE = 0;
+    public static final int LOG_LEVEL_ERROR = 1;
+    public static final int LOG_LEVEL_WARN = 2;
+    public static final int LOG_LEVEL_INFO = 3;
+    public static final int LOG_LEVEL_DEBUG = 4;
+    public static final int LOG_LEVEL_VERBOSE = 5;
+
+    // Id MMKV uses for its default instance
+    public static final String DEFAULT_MMKV_ID = "mmkv.default";
+
+    private static final String NAMESPACE_INSTANCE_SEPARATOR = "#";
+    private static final String ACCESS_PROFILE_ID = "capacitor-mmkv.profile";
+    private static final String ACCESS_PROFILE_KEY = "startup";
+    // Modes that decide how an instance's data is laid out, per instance name, so they apply from the
+    // first access of the next launch on. Kept here rather than next to the data (such as in the
+    // "<mmkvId>#" registry) so that finding an instance's modes never opens or creates a file for it.
+    private static final String INSTANCE_MODES_ID = "capacitor-mmkv.modes";
+    // Followed by a store's base name: the keys it held when type tagging was turned on
+    private static final String UNTAGGED_KEYS_PREFIX = "capacitor-mmkv.untagged.";
+    private static final int MODE_TYPE_TAGGED = 1;
+    // Type tagging was turned on while the instance already held (untagged) values
+    private static final int MODE_UNTAGGED_VALUES = 2;
+    private static final int MODE_NAMESPACE_INSTANCES = 4;
+    // Metric names of the typed reads and writes, indexed by ValueType ordinal
+    private static final String[] GET_OPERATIONS = { "getString", "getInt", "getBool", "getFloat", "getBytes" };
+    private static final String[] SET_OPERATIONS = { "setString", "setInt", "setBool", "setFloat", "setBytes" };
+    private static final int NAMESPACE_PENDING = 1;
+    private static final int NAMESPACE_MIGRATED = 2;
+
+    // Instance, namespace and optionally key resolved once by openHandle
+    private static final class Handle {
+
+        final String mmkvId;
+        final String namespace;
+        final String key;
+        final NamespaceInstance nsInstance;
+        final String storeId;
+        final KeyValueStore store;
+        final String prefix;
+        final String storeKey;
+        final String cacheKey;
+
+        Handle(String mmkvId, String namespace, String key, NamespaceInstance nsInstance, String storeId, KeyValueStore store, String prefix) {
+            this.mmkvId = mmkvId;
+            this.namespace = namespace;
+            this.key = key;
+            this.nsInstance = nsInstance;
+            this.storeId = storeId;
+            this.store = store;
+            this.prefix = prefix;
+            this.storeKey = key != null ? prefix + key : null;
+            this.cacheKey = key != null ? ReadCache.cacheKey(instanceKey(storeId), storeKey) : null;
+        }
+    }
 
-    public CapacitorMMKV() {
+    private static final class NamespaceInstance {
+
+        final String storeId;
+        volatile boolean legacyPending;
+
+        NamespaceInstance(String storeId) {
+            this.storeId = storeId;
+        }
+    }
+
+    private final StorageBackend backend;
+    private final InstanceManager instances;
+    private final MaintenanceScheduler maintenance;
+    private final KeyChangeNotifier keyChanges = new KeyChangeNotifier();
+    private volatile Metrics metrics; // null while metrics are off
+    private final Object metricsLock = new Object();
+    private MetricsListener metricsListener; // guarded by metricsLock
+    private ScheduledExecutorService metricsReporter; // guarded by metricsLock
+    private ManagedKeyValueStore defaultMMKV;
+    private volatile LogBuffer logBuffer; // null until a listener is set
+    private volatile InitTiming initTiming;
+    private volatile AccessProfile accessProfile; // non-null only while the profiling window is open
+    // Read without locking on every log line; written under logLevelLock together with the backend's level
+    private volatile int currentLogLevel = LOG_LEVEL_NONE; // Default to off
+    private final Object logLevelLock = new Object();
+    private boolean backendInitialized; // guarded by logLevelLock
+    private volatile ReadCache readCache; // null when caching is disabled
+    private final Set<String> typeTaggedInstances = ConcurrentHashMap.newKeySet();
+    private final Set<String> untaggedValueInstances = ConcurrentHashMap.newKeySet();
+    // Per store of an instance in untaggedValueInstances, loaded on first use
+    private final ConcurrentHashMap<String, Set<String>> untaggedKeys = new ConcurrentHashMap<>();
+    private final Object modesLock = new Object();
+    private final ConcurrentHashMap<String, NamespaceIndex> namespaceIndexes = new ConcurrentHashMap<>();
+    // Indexed by handle; readers take the array without locking, openHandle/closeHandle copy on write
+    private volatile Handle[] handles = new Handle[16];
+    private final Object handleLock = new Object();
+    private final Set<String> writeBehindInstances = ConcurrentHashMap.newKeySet();
+    private final Set<String> namespaceInstanceBases = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, NamespaceInstance>> namespaceInstances = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> namespaceInstanceOwners = new ConcurrentHashMap<>();
+
+    public CapacitorMMKV(StorageBackend backend) {
         // Initialization will be handled by the plugin's load() method
+        this.backend = backend;
+        this.instances = new InstanceManager(backend);
+        this.maintenance = new MaintenanceScheduler(instances);
     }
 
     public void initialize() {
         if (defaultMMKV == null) {
-            MMKV.initialize(null);
-            defaultMMKV = MMKV.defaultMMKV();
-            setupLogging();
+            long start = System.nanoTime();
+            backend.initialize(this::logMessage);
+            synchronized (logLevelLock) {
+                backendInitialized = true;
+                // A level set before initialization only reached this class so far
+                if (currentLogLevel != LOG_LEVEL_NONE) {
+                    backend.setLogLevel(currentLogLevel);
+                }
+            }
+            long backendReady = System.nanoTime();
+            defaultMMKV = instances.openDefault();
+            loadInstanceModes();
+            initTiming = new InitTiming(backendReady - start, System.nanoTime() - backendReady);
+        }
+    }
+
+    // null until initialize() has completed
+    public InitTiming getInitTiming() {
+        return initTiming;
+    }
+
+    // Reports a problem that has no call to reject, such as a failed background task
+    public void reportError(String message) {
+        logMessage(LOG_LEVEL_ERROR, message, null);
+    }
+
+    private void logMessage(int level, String message, String mmkvId) {
+        // The level is checked before anything is allocated; at LOG_LEVEL_NONE this is the whole cost
+        if (level > currentLogLevel) {
+            return;
+        }
+        LogBuffer buffer = logBuffer;
+        if (buffer != null) {
+            buffer.offer(level, message, mmkvId);
+        }
+    }
+
+    public void setLogListener(MMKVLogBatchListener listener) {
+        setLogListener(listener, LogBuffer.DEFAULT_CAPACITY, LogBuffer.DEFAULT_FLUSH_INTERVAL_MS, LogBuffer.DEFAULT_MAX_BATCH);
+    }
+
+    // Entries are buffered in a ring of bufferSize and delivered up to maxBatch at a time, flushIntervalMs
+    // after the first of a batch was logged. Entries logged while the ring is full are dropped.
+    public void setLogListener(MMKVLogBatchListener listener, int bufferSize, long flushIntervalMs, int maxBatch) {
+        LogBuffer previous = logBuffer;
+        logBuffer = listener != null ? new LogBuffer(bufferSize, flushIntervalMs, maxBatch, listener) : null;
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    // Keeps sampleRate (0..1) of the entries of level, and at most maxPerSecond of them (0 for no cap).
+    // Applies to the current listener.
+    public void setLogLevelLimit(int level, int maxPerSecond, double sampleRate) {
+        if (level < LOG_LEVEL_ERROR || level > LOG_LEVEL_VERBOSE) {
+            throw new IllegalArgumentException("Invalid log level: " + level);
+        }
+        LogBuffer buffer = logBuffer;
+        if (buffer != null) {
+            buffer.setLevelLimit(level, maxPerSecond, sampleRate);
+        }
+    }
+
+    // null while no listener is set
+    public LogStats getLogStats() {
+        LogBuffer buffer = logBuffer;
+        return buffer != null ? buffer.stats() : null;
+    }
+
+    public void setLogLevel(int level) {
+        // Serialized so concurrent changes can't leave this level and the backend's disagreeing
+        synchronized (logLevelLock) {
+            currentLogLevel = level;
+            if (backendInitialized) {
+                backend.setLogLevel(level);
+            }
+        }
+    }
+
+    public int getLogLevel() {
+        return currentLogLevel;
+    }
+
+    ManagedKeyValueStore getMMKVInstance(String mmkvId) {
+        if (mmkvId == null || mmkvId.isEmpty()) {
+            return defaultMMKV;
         }
+
+        return instances.get(mmkvId);
     }
 
-    private void setupLogging() {
-        MMKV.registerHandler(new com.tencent.mmkv.MMKVHandler() {
-            @Override
-            public com.tencent.mmkv.MMKVRecoverStrategic onMMKVCRCCheckFail(String mmapID) {
-                logMessage(MMKVLogLevel.LevelError, "CRC check failed for: " + mmapID, mmapID);
-                return com.tencent.mmkv.MMKVRecoverStrategic.OnErrorRecover;
+    // Buffers writes to mmkvId (and its namespace stores) in memory, keeping only the latest value per key,
+    // and writes them out in the background. Reads see buffered values immediately. Disabling flushes.
+    public void setWriteBehind(String mmkvId, boolean enabled) {
+        if (enabled) {
+            writeBehindInstances.add(instanceKey(mmkvId));
+        } else {
+            writeBehindInstances.remove(instanceKey(mmkvId));
+        }
+        instances.setWriteBehind(getMMKVInstance(mmkvId), enabled);
+        ConcurrentHashMap<String, NamespaceInstance> byNamespace = namespaceInstances.get(instanceKey(mmkvId));
+        if (byNamespace != null) {
+            for (NamespaceInstance nsInstance : byNamespace.values()) {
+                instances.setWriteBehind(getMMKVInstance(nsInstance.storeId), enabled);
             }
+        }
+    }
+
+    public void configureWriteBehind(long flushIntervalMs, int maxPendingWrites) {
+        instances.configureWriteBehind(flushIntervalMs, maxPendingWrites);
+    }
 
-            @Override
-            public com.tencent.mmkv.MMKVRecoverStrategic onMMKVFileLengthError(String mmapID) {
-                logMessage(MMKVLogLevel.LevelError, "File length error for: " + mmapID, mmapID);
-                return com.tencent.mmkv.MMKVRecoverStrategic.OnErrorRecover;
+    // Sets when mmkvId's writes are forced to disk; syncIntervalMs only applies to PERIODIC. Namespace
+    // stores of mmkvId follow the same mode.
+    public void setDurability(String mmkvId, Durability durability, long syncIntervalMs) {
+        instances.setDurability(getMMKVInstance(mmkvId), durability, syncIntervalMs);
+        ConcurrentHashMap<String, NamespaceInstance> byNamespace = namespaceInstances.get(instanceKey(mmkvId));
+        if (byNamespace != null) {
+            for (NamespaceInstance nsInstance : byNamespace.values()) {
+                instances.setDurability(getMMKVInstance(nsInstance.storeId), durability, syncIntervalMs);
             }
+        }
+    }
+
+    // Opens the store that calls for mmkvId and namespace use, without reading anything
+    public void resolveInstance(String mmkvId, String namespace) {
+        NamespaceInstance nsInstance = namespaceInstance(mmkvId, namespace);
+        getMMKVInstance(nsInstance != null ? nsInstance.storeId : mmkvId).ensureOpen();
+    }
 
-            @Override
-            public boolean wantLogRedirecting() {
-                return true;
+    // Flushes buffered writes of mmkvId and its namespace stores and msyncs them, whatever their mode
+    public void sync(String mmkvId) {
+        measured("sync", mmkvId, () -> {
+            getMMKVInstance(mmkvId).sync();
+            ConcurrentHashMap<String, NamespaceInstance> byNamespace = namespaceInstances.get(instanceKey(mmkvId));
+            if (byNamespace != null) {
+                for (NamespaceInstance nsInstance : byNamespace.values()) {
+                    getMMKVInstance(nsInstance.storeId).sync();
+                }
             }
+        });
+    }
+
+    // Flushes and msyncs every instance written since its last sync, whatever its mode
+    public void syncAll() {
+        instances.syncAll();
+    }
+
+    // For app lifecycle transitions: flushes all buffered writes and msyncs instances unless they are
+    // in MANUAL mode. Runs in the background, as lifecycle callbacks come in on the main thread.
+    public CompletableFuture<Void> syncOnLifecycle() {
+        return instances.syncOnLifecycleAsync();
+    }
 
-            @Override
-            public void mmkvLog(com.tencent.mmkv.MMKVLogLevel level, String file, int line, String funcname, String message) {
-                logMessage(level.ordinal(), message, null);
+    // Every intervalMs, trims instances whose file is at least minFragmentation unused (0..1). Instances
+    // accessed within idleMs are left alone while the app is in the foreground, and a run stops after
+    // budgetMs. intervalMs 0 turns scheduled maintenance off.
+    public void configureMaintenance(long intervalMs, double minFragmentation, long idleMs, long budgetMs) {
+        maintenance.configure(intervalMs, minFragmentation, idleMs, budgetMs);
+    }
+
+    public void setAppInBackground(boolean background) {
+        maintenance.setBackground(background);
+    }
+
+    // Compacts mmkvId now, along with its namespace stores when it uses namespace instances; returns the
+    // bytes reclaimed
+    public long trim(String mmkvId) {
+        return measured("trim", mmkvId, () -> {
+            long reclaimed = maintenance.trim(getMMKVInstance(mmkvId));
+            ConcurrentHashMap<String, NamespaceInstance> byNamespace = namespaceInstances.get(instanceKey(mmkvId));
+            if (byNamespace != null) {
+                for (NamespaceInstance nsInstance : byNamespace.values()) {
+                    reclaimed += maintenance.trim(getMMKVInstance(nsInstance.storeId));
+                }
             }
+            return reclaimed;
         });
-        
-        MMKV.setLogLevel(MMKVLogLevel.LevelNone);
     }
 
-    private void logMessage(int level, String message, String mmkvId) {
-        if (level <= currentLogLevel && logListener != null) {
-            logListener.onLog(level, message, mmkvId);
+    // Compacts every open instance now; returns the bytes reclaimed
+    public long trimAll() {
+        long reclaimed = 0;
+        for (ManagedKeyValueStore store : instances.openStores()) {
+            reclaimed += maintenance.trim(store);
         }
+        return reclaimed;
     }
 
-    public void setLogListener(MMKVLogListener listener) {
-        this.logListener = listener;
+    MaintenanceScheduler.Stats getMaintenanceStats() {
+        return maintenance.stats();
     }
 
-    public void setLogLevel(int level) {
-        this.currentLogLevel = level;
-        MMKV.setLogLevel(convertToMMKVLogLevel(level));
+    // Opens mmkvId without blocking the caller; the future completes once the file is mapped
+    public CompletableFuture<Void> openInstance(String mmkvId) {
+        if (mmkvId == null || mmkvId.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return instances.openAsync(mmkvId).thenApply(store -> null);
     }
 
-    public int getLogLevel() {
-        return currentLogLevel;
+    // Named instances are closed after idleTimeoutMs without access, and least recently used ones are
+    // closed while the open mappings exceed maxMappedBytes; closed instances reopen on next access.
+    // 0 disables either limit.
+    public void configureInstanceEviction(long idleTimeoutMs, long maxMappedBytes) {
+        instances.configure(idleTimeoutMs, maxMappedBytes);
+    }
+
+    // Releases the mapping and file descriptor of mmkvId, along with the stores of its namespaces when
+    // it uses namespace instances. Returns whether anything was open.
+    public boolean closeInstance(String mmkvId) {
+        return measured("closeInstance", mmkvId, () -> {
+            if (mmkvId == null || mmkvId.isEmpty()) {
+                throw new IllegalArgumentException("The default instance can't be closed");
+            }
+            boolean closed = instances.close(mmkvId);
+            ConcurrentHashMap<String, NamespaceInstance> byNamespace = namespaceInstances.get(instanceKey(mmkvId));
+            if (byNamespace != null) {
+                for (NamespaceInstance nsInstance : byNamespace.values()) {
+                    closed |= instances.close(nsInstance.storeId);
+                }
+                closed |= instances.close(registryId(mmkvId));
+            }
+            return closed;
+        });
+    }
+
+    public void setKeyChangeListener(KeyChangeListener listener) {
+        keyChanges.setListener(listener);
+    }
+
+    // Changes made within windowMs of the first pending one are delivered together
+    public void setKeyChangeWindow(long windowMs) {
+        keyChanges.setWindow(windowMs);
     }
 
-    private MMKVLogLevel convertToMMKVLogLevel(int level) {
-        switch (level) {
-            case 0: return MMKVLogLevel.LevelNone;
-            case 1: return MMKVLogLevel.LevelError;
-            case 2: return MMKVLogLevel.LevelInfo;
-            case 3: return MMKVLogLevel.LevelInfo;
-            case 4: return MMKVLogLevel.LevelDebug;
-            case 5: return MMKVLogLevel.LevelDebug;
-            default: return MMKVLogLevel.LevelNone;
+    // Reports sets, removals and clears of keys matching all given filters; null matches anything.
+    // Returns the id to pass to unwatchKeys.
+    public int watchKeys(String mmkvId, String namespace, String keyPrefix) {
+        return keyChanges.watch(normalize(mmkvId) != null ? mmkvId : null, normalize(namespace), normalize(keyPrefix));
+    }
+
+    public boolean unwatchKeys(int watchId) {
+        return keyChanges.unwatch(watchId);
+    }
+
+    // Turning metrics off discards what was recorded and leaves operations with a single volatile read.
+    // With reportIntervalMs > 0 the metrics listener gets a snapshot at that interval.
+    public void configureMetrics(boolean enabled, long reportIntervalMs) {
+        synchronized (metricsLock) {
+            if (!enabled) {
+                metrics = null;
+            } else if (metrics == null) {
+                metrics = new Metrics();
+            }
+            if (metricsReporter != null) {
+                metricsReporter.shutdown();
+                metricsReporter = null;
+            }
+            if (enabled && reportIntervalMs > 0) {
+                metricsReporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "CapacitorMMKV-metrics");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+                metricsReporter.scheduleWithFixedDelay(this::reportMetrics, reportIntervalMs, reportIntervalMs, TimeUnit.MILLISECONDS);
+            }
         }
     }
 
-    private MMKV getMMKVInstance(String mmkvId) {
-        if (mmkvId == null || mmkvId.isEmpty()) {
-            return defaultMMKV;
+    public void setMetricsListener(MetricsListener listener) {
+        synchronized (metricsLock) {
+            metricsListener = listener;
+        }
+    }
+
+    // null while metrics are off; reset starts a new recording period after this snapshot
+    public MetricsSnapshot getMetrics(boolean reset) {
+        Metrics current;
+        synchronized (metricsLock) {
+            current = metrics;
+            if (current != null && reset) {
+                metrics = new Metrics();
+            }
         }
-        
-        return mmkvInstances.computeIfAbsent(mmkvId, id -> MMKV.mmkvWithID(id));
+        return current != null ? current.snapshot() : null;
     }
 
-    private String getNamespacedKey(String key, String namespace) {
+    private void reportMetrics() {
+        Metrics current = metrics;
+        MetricsListener listener;
+        synchronized (metricsLock) {
+            listener = metricsListener;
+        }
+        if (current != null && listener != null) {
+            listener.onMetrics(current.snapshot());
+        }
+    }
+
+    String getNamespacedKey(String key, String namespace) {
         if (namespace == null || namespace.isEmpty()) {
             return key;
         }
@@ -104,126 +450,1103 @@ public class CapacitorMMKV {
     }
 
     public void setString(String key, String value, String mmkvId, String namespace) {
-        String namespacedKey = getNamespacedKey(key, namespace);
-        getMMKVInstance(mmkvId).encode(namespacedKey, value);
+        setValue(key, value, mmkvId, namespace, ValueType.STRING);
     }
 
     public String getString(String key, String mmkvId, String namespace) {
-        String namespacedKey = getNamespacedKey(key, namespace);
-        return getMMKVInstance(mmkvId).decodeString(namespacedKey, null);
+        return (String) getTypedValue(key, mmkvId, namespace, ValueType.STRING);
     }
 
     public void setInt(String key, int value, String mmkvId, String namespace) {
-        String namespacedKey = getNamespacedKey(key, namespace);
-        getMMKVInstance(mmkvId).encode(namespacedKey, value);
+        setValue(key, value, mmkvId, namespace, ValueType.INT);
     }
 
     public Integer getInt(String key, String mmkvId, String namespace) {
-        String namespacedKey = getNamespacedKey(key, namespace);
-        MMKV instance = getMMKVInstance(mmkvId);
-        if (!instance.containsKey(namespacedKey)) {
-            return null;
-        }
-        return instance.decodeInt(namespacedKey, 0);
+        return (Integer) getTypedValue(key, mmkvId, namespace, ValueType.INT);
     }
 
     public void setBool(String key, boolean value, String mmkvId, String namespace) {
-        String namespacedKey = getNamespacedKey(key, namespace);
-        getMMKVInstance(mmkvId).encode(namespacedKey, value);
+        setValue(key, value, mmkvId, namespace, ValueType.BOOL);
     }
 
     public Boolean getBool(String key, String mmkvId, String namespace) {
-        String namespacedKey = getNamespacedKey(key, namespace);
-        MMKV instance = getMMKVInstance(mmkvId);
-        if (!instance.containsKey(namespacedKey)) {
-            return null;
-        }
-        return instance.decodeBool(namespacedKey, false);
+        return (Boolean) getTypedValue(key, mmkvId, namespace, ValueType.BOOL);
     }
 
     public void setFloat(String key, float value, String mmkvId, String namespace) {
-        String namespacedKey = getNamespacedKey(key, namespace);
-        getMMKVInstance(mmkvId).encode(namespacedKey, value);
+        setValue(key, value, mmkvId, namespace, ValueType.FLOAT);
     }
 
     public Float getFloat(String key, String mmkvId, String namespace) {
-        String namespacedKey = getNamespacedKey(key, namespace);
-        MMKV instance = getMMKVInstance(mmkvId);
+        return (Float) getTypedValue(key, mmkvId, namespace, ValueType.FLOAT);
+    }
+
+    public void setBytes(String key, byte[] value, String mmkvId, String namespace) {
+        setValue(key, value, mmkvId, namespace, ValueType.BYTES);
+    }
+
+    public byte[] getBytes(String key, String mmkvId, String namespace) {
+        return (byte[]) getTypedValue(key, mmkvId, namespace, ValueType.BYTES);
+    }
+
+    private void setValue(String key, Object value, String mmkvId, String namespace, ValueType type) {
+        long start = metricsStart();
+        NamespaceInstance nsInstance = namespaceInstance(mmkvId, namespace);
+        if (nsInstance == null) {
+            writeValue(mmkvId, getMMKVInstance(mmkvId), getNamespacedKey(key, namespace), type, value);
+        } else if (!nsInstance.legacyPending) {
+            writeValue(nsInstance.storeId, getMMKVInstance(nsInstance.storeId), key, type, value);
+        } else {
+            synchronized (nsInstance) {
+                writeValue(nsInstance.storeId, getMMKVInstance(nsInstance.storeId), key, type, value);
+                dropLegacyKeys(mmkvId, namespace, nsInstance, new String[] { key });
+            }
+        }
+        keyChanged(mmkvId, namespace, key, value == null);
+        if (start != 0) {
+            recordMetric(SET_OPERATIONS[type.ordinal()], mmkvId, start, sizeOf(value), 0);
+        }
+    }
+
+    private Object getTypedValue(String key, String mmkvId, String namespace, ValueType type) {
+        long start = metricsStart();
+        AccessProfile profile = accessProfile;
+        if (profile != null) {
+            profile.record(mmkvId, namespace, key, type);
+        }
+        Object value = readTypedValue(key, mmkvId, namespace, type);
+        if (start != 0) {
+            recordMetric(GET_OPERATIONS[type.ordinal()], mmkvId, start, 0, sizeOf(value));
+        }
+        return value;
+    }
+
+    private Object readTypedValue(String key, String mmkvId, String namespace, ValueType type) {
+        NamespaceInstance nsInstance = namespaceInstance(mmkvId, namespace);
+        if (nsInstance == null) {
+            return readValue(mmkvId, null, getNamespacedKey(key, namespace), type);
+        }
+        Object value = readValue(nsInstance.storeId, null, key, type);
+        if (value != null || !nsInstance.legacyPending) {
+            return value;
+        }
+        // Read the legacy key in place: without a type tag a value can't be moved safely, as decoding it
+        // as the requested type may succeed for a value stored as another. It moves on its next write.
+        synchronized (nsInstance) {
+            value = readValue(nsInstance.storeId, null, key, type);
+            if (value == null && nsInstance.legacyPending) {
+                value = readValue(mmkvId, null, getNamespacedKey(key, namespace), type);
+            }
+        }
+        return value;
+    }
+
+    // instance may be null, in which case it is only resolved when the cache can't answer
+    private Object readValue(String mmkvId, KeyValueStore instance, String namespacedKey, ValueType type) {
+        return readValue(mmkvId, instance, namespacedKey, null, type);
+    }
+
+    // cacheKey may be precomputed by the caller, otherwise it is only built when the cache is enabled
+    private Object readValue(String mmkvId, KeyValueStore instance, String namespacedKey, String cacheKey, ValueType type) {
+        ReadCache cache = readCache;
+        if (cache == null) {
+            return decodeValue(mmkvId, instance != null ? instance : getMMKVInstance(mmkvId), namespacedKey, type);
+        }
+        if (cacheKey == null) {
+            cacheKey = ReadCache.cacheKey(instanceKey(mmkvId), namespacedKey);
+        }
+        Object cached = cache.get(cacheKey, type);
+        if (cached != null) {
+            return cached == ReadCache.ABSENT ? null : cached;
+        }
+        long loadEpoch = cache.beginLoad();
+        Object value = decodeValue(mmkvId, instance != null ? instance : getMMKVInstance(mmkvId), namespacedKey, type);
+        cache.put(cacheKey, instanceKey(mmkvId), type, value, loadEpoch);
+        return value;
+    }
+
+    private Object decodeValue(String mmkvId, KeyValueStore instance, String namespacedKey, ValueType type) {
+        if (isTypeTagged(mmkvId)) {
+            // One lookup answers presence, type and value
+            // A value written before tagging was turned on may start with a valid tag by chance, so only
+            // the recorded keys tell the two apart
+            if (!isUntaggedKey(mmkvId, namespacedKey)) {
+                byte[] encoded = instance.decodeBytes(namespacedKey, null);
+                return TaggedValueCodec.typeOf(encoded) == type ? TaggedValueCodec.decode(encoded) : null;
+            }
+        }
+        switch (type) {
+            case STRING:
+                return instance.decodeString(namespacedKey, null);
+            case BYTES:
+                return instance.decodeBytes(namespacedKey, null);
+            default:
+                break;
+        }
+        // Primitive decoders can't signal absence, so check presence first
         if (!instance.containsKey(namespacedKey)) {
             return null;
         }
-        return instance.decodeFloat(namespacedKey, 0.0f);
+        switch (type) {
+            case INT:
+                return instance.decodeInt(namespacedKey, 0);
+            case BOOL:
+                return instance.decodeBool(namespacedKey, false);
+            case FLOAT:
+                return instance.decodeFloat(namespacedKey, 0.0f);
+            default:
+                throw new IllegalArgumentException("Unsupported type: " + type);
+        }
     }
 
-    public void setBytes(String key, byte[] value, String mmkvId, String namespace) {
+    // Returns the stored value with its type, or null if the key is absent or holds a value written before
+    // type tagging was turned on; requires a type-tagged instance
+    public TypedValue getValue(String key, String mmkvId, String namespace) {
+        long start = metricsStart();
+        if (!isTypeTagged(mmkvId)) {
+            throw new IllegalStateException("getValue requires type-tagged storage for instance: " + instanceKey(mmkvId));
+        }
         String namespacedKey = getNamespacedKey(key, namespace);
-        getMMKVInstance(mmkvId).encode(namespacedKey, value);
+        NamespaceInstance nsInstance = namespaceInstance(mmkvId, namespace);
+        byte[] encoded;
+        if (nsInstance == null) {
+            encoded = readTagged(mmkvId, namespacedKey);
+        } else {
+            encoded = readTagged(nsInstance.storeId, key);
+            if (encoded == null && nsInstance.legacyPending) {
+                synchronized (nsInstance) {
+                    encoded = readTagged(nsInstance.storeId, key);
+                    if (encoded == null && nsInstance.legacyPending) {
+                        encoded = readTagged(mmkvId, namespacedKey);
+                    }
+                }
+            }
+        }
+        ValueType type = TaggedValueCodec.typeOf(encoded);
+        if (start != 0) {
+            recordMetric("getValue", mmkvId, start, 0, encoded != null ? encoded.length - 1 : 0);
+        }
+        return type != null ? new TypedValue(type, TaggedValueCodec.decode(encoded)) : null;
     }
 
-    public byte[] getBytes(String key, String mmkvId, String namespace) {
-        String namespacedKey = getNamespacedKey(key, namespace);
-        return getMMKVInstance(mmkvId).decodeBytes(namespacedKey, null);
+    // The encoded bytes of a value written with its type tag, or null
+    private byte[] readTagged(String storeId, String key) {
+        return isUntaggedKey(storeId, key) ? null : getMMKVInstance(storeId).decodeBytes(key, null);
+    }
+
+    // Keys read in the previous session's profiling window, in first-read order; empty if there is none
+    public List<BatchEntry> loadAccessProfile() {
+        byte[] data = getMMKVInstance(ACCESS_PROFILE_ID).decodeBytes(ACCESS_PROFILE_KEY, null);
+        if (data == null) {
+            return new ArrayList<>();
+        }
+        try {
+            return AccessProfile.decode(data);
+        } catch (IOException e) {
+            reportError("Discarding unreadable access profile: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    // Records up to maxKeys distinct keys read during the next windowMs and then stores them, replacing
+    // the previous profile, so the next launch can prewarm what this one needed
+    public void startAccessProfile(long windowMs, int maxKeys) {
+        AccessProfile profile = new AccessProfile(maxKeys);
+        accessProfile = profile;
+
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "CapacitorMMKV-profile");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.schedule(
+            () -> {
+                if (accessProfile == profile) {
+                    accessProfile = null;
+                }
+                getMMKVInstance(ACCESS_PROFILE_ID).encode(ACCESS_PROFILE_KEY, profile.encode());
+            },
+            windowMs,
+            TimeUnit.MILLISECONDS
+        );
+        // The scheduled task still runs; the thread goes away after it
+        timer.shutdown();
+    }
+
+    // Opens the given instances, plus those the keys live in, in parallel off the caller's thread, then
+    // reads each key once so its value is served from the read cache (or at least has its pages faulted
+    // in when the cache is off). Keys of different instances are read in parallel too.
+    public CompletableFuture<PrewarmStats> prewarm(List<String> mmkvIds, List<BatchEntry> keys) {
+        long start = System.nanoTime();
+        Map<String, List<BatchEntry>> byInstance = new LinkedHashMap<>();
+        for (String mmkvId : mmkvIds) {
+            byInstance.computeIfAbsent(instanceKey(mmkvId), id -> new ArrayList<>());
+        }
+        for (BatchEntry entry : keys) {
+            byInstance.computeIfAbsent(instanceKey(entry.mmkvId), id -> new ArrayList<>()).add(entry);
+        }
+
+        AtomicInteger found = new AtomicInteger();
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (Map.Entry<String, List<BatchEntry>> group : byInstance.entrySet()) {
+            String mmkvId = group.getKey().isEmpty() ? null : group.getKey();
+            List<BatchEntry> entries = group.getValue();
+            CompletableFuture<?> opened = mmkvId == null ? CompletableFuture.completedFuture(null) : instances.openAsync(mmkvId);
+            tasks.add(
+                opened.thenRunAsync(
+                    () -> {
+                        for (BatchEntry entry : entries) {
+                            // Not getTypedValue: prewarm reads must not end up in this session's access profile
+                            if (readTypedValue(entry.key, mmkvId, entry.namespace, entry.type) != null) {
+                                found.incrementAndGet();
+                            }
+                        }
+                    },
+                    instances.executor()
+                )
+            );
+        }
+        return CompletableFuture
+            .allOf(tasks.toArray(new CompletableFuture<?>[0]))
+            .thenApply(done -> new PrewarmStats(byInstance.size(), keys.size(), found.get(), System.nanoTime() - start));
+    }
+
+    public Map<String, Object> getMany(List<BatchEntry> entries) {
+        long start = metricsStart();
+        Map<String, Object> values = new LinkedHashMap<>();
+        AccessProfile profile = accessProfile;
+        String currentId = null;
+        String currentNamespace = null;
+        NamespaceInstance nsInstance = null;
+        String storeId = null;
+        KeyValueStore store = null;
+        String prefix = "";
+        long bytesOut = 0;
+        for (BatchEntry entry : entries) {
+            // Descriptors are usually grouped by instance and namespace, so only re-resolve when they change
+            if (store == null || !sameId(currentId, entry.mmkvId) || !sameId(currentNamespace, entry.namespace)) {
+                currentId = entry.mmkvId;
+                currentNamespace = entry.namespace;
+                nsInstance = namespaceInstance(currentId, currentNamespace);
+                storeId = nsInstance != null ? nsInstance.storeId : currentId;
+                store = getMMKVInstance(storeId);
+                prefix = currentNamespace == null || currentNamespace.isEmpty() || nsInstance != null ? "" : currentNamespace + ":";
+            }
+            if (profile != null) {
+                profile.record(currentId, currentNamespace, entry.key, entry.type);
+            }
+            Object value;
+            if (nsInstance != null && nsInstance.legacyPending) {
+                value = readTypedValue(entry.key, currentId, currentNamespace, entry.type);
+            } else {
+                value = readValue(storeId, store, prefix + entry.key, entry.type);
+            }
+            values.put(entry.resultKey(), value);
+            bytesOut += start != 0 ? sizeOf(value) : 0;
+        }
+        if (start != 0) {
+            recordMetric("getMany", start, 0, bytesOut);
+        }
+        return values;
+    }
+
+    public void setMany(List<BatchEntry> entries) {
+        long start = metricsStart();
+        // Group by instance, then namespace, so each is resolved once per group
+        Map<String, Map<String, List<BatchEntry>>> groups = new LinkedHashMap<>();
+        long bytesIn = 0;
+        for (BatchEntry entry : entries) {
+            groups
+                .computeIfAbsent(normalize(entry.mmkvId), id -> new LinkedHashMap<>())
+                .computeIfAbsent(normalize(entry.namespace), ns -> new ArrayList<>())
+                .add(entry);
+            bytesIn += start != 0 ? sizeOf(entry.value) : 0;
+        }
+
+        for (Map.Entry<String, Map<String, List<BatchEntry>>> instanceGroup : groups.entrySet()) {
+            String mmkvId = instanceGroup.getKey();
+            KeyValueStore instance = getMMKVInstance(mmkvId);
+            for (Map.Entry<String, List<BatchEntry>> namespaceGroup : instanceGroup.getValue().entrySet()) {
+                String namespace = namespaceGroup.getKey();
+                NamespaceInstance nsInstance = namespaceInstance(mmkvId, namespace);
+                if (nsInstance != null && nsInstance.legacyPending) {
+                    // Still migrating: take the per-namespace path that also retires legacy keys
+                    for (BatchEntry entry : namespaceGroup.getValue()) {
+                        setValue(entry.key, entry.value, mmkvId, namespace, entry.type);
+                    }
+                    continue;
+                }
+                String storeId = nsInstance != null ? nsInstance.storeId : mmkvId;
+                KeyValueStore store = nsInstance != null ? getMMKVInstance(storeId) : instance;
+                String prefix = namespace == null || nsInstance != null ? "" : namespace + ":";
+                for (BatchEntry entry : namespaceGroup.getValue()) {
+                    writeValue(storeId, store, prefix + entry.key, entry.type, entry.value);
+                    keyChanged(mmkvId, namespace, entry.key, entry.value == null);
+                }
+            }
+        }
+        if (start != 0) {
+            recordMetric("setMany", start, bytesIn, 0);
+        }
+    }
+
+    private void writeValue(String mmkvId, KeyValueStore instance, String namespacedKey, ValueType type, Object value) {
+        if (isTypeTagged(mmkvId)) {
+            // Like encoding a null string or byte array untagged, a null value removes the key
+            if (value == null) {
+                instance.removeValueForKey(namespacedKey);
+            } else {
+                instance.encode(namespacedKey, TaggedValueCodec.encode(type, value));
+            }
+            afterWrite(mmkvId, namespacedKey);
+            return;
+        }
+        switch (type) {
+            case STRING:
+                instance.encode(namespacedKey, (String) value);
+                break;
+            case INT:
+                instance.encode(namespacedKey, (Integer) value);
+                break;
+            case BOOL:
+                instance.encode(namespacedKey, (Boolean) value);
+                break;
+            case FLOAT:
+                instance.encode(namespacedKey, (Float) value);
+                break;
+            case BYTES:
+                instance.encode(namespacedKey, (byte[]) value);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported type: " + type);
+        }
+        afterWrite(mmkvId, namespacedKey);
+    }
+
+    public List<PipelineResult> pipeline(List<PipelineOperation> operations) {
+        long start = metricsStart();
+        try {
+            List<PipelineResult> results = new ArrayList<>(operations.size());
+            for (PipelineOperation operation : operations) {
+                if (operation.error != null) {
+                    results.add(PipelineResult.failure(operation.error));
+                    continue;
+                }
+                // A failing operation is reported in place; later operations still run
+                try {
+                    results.add(execute(operation));
+                } catch (RuntimeException e) {
+                    results.add(PipelineResult.failure(e.getMessage() != null ? e.getMessage() : e.toString()));
+                }
+            }
+            return results;
+        } finally {
+            if (start != 0) {
+                recordMetric("pipeline", start, 0, 0);
+            }
+        }
+    }
+
+    private PipelineResult execute(PipelineOperation operation) {
+        String mmkvId = operation.mmkvId;
+        String namespace = operation.namespace;
+        switch (operation.kind) {
+            case GET:
+                return PipelineResult.of("value", getTypedValue(operation.key, mmkvId, namespace, operation.type));
+            case SET:
+                setValue(operation.key, operation.value, mmkvId, namespace, operation.type);
+                return PipelineResult.ok();
+            case REMOVE:
+                removeValueForKey(operation.key, mmkvId, namespace);
+                return PipelineResult.ok();
+            case REMOVE_MANY:
+                removeValuesForKeys(operation.keys, mmkvId, namespace);
+                return PipelineResult.ok();
+            case GET_ALL_KEYS:
+                return PipelineResult.of("keys", getAllKeys(mmkvId, namespace));
+            case CONTAINS:
+                return PipelineResult.of("exists", contains(operation.key, mmkvId, namespace));
+            case COUNT:
+                return PipelineResult.of("count", count(mmkvId, namespace));
+            case TOTAL_SIZE:
+                return PipelineResult.of("size", totalSize(mmkvId, namespace));
+            case CLEAR_ALL:
+                clearAll(mmkvId, namespace);
+                return PipelineResult.ok();
+            case SET_LOG_LEVEL:
+                setLogLevel((Integer) operation.value);
+                return PipelineResult.ok();
+            case GET_LOG_LEVEL:
+                return PipelineResult.of("level", getLogLevel());
+            default:
+                throw new IllegalArgumentException("Unsupported operation: " + operation.kind);
+        }
+    }
+
+    private static String normalize(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static boolean sameId(String a, String b) {
+        boolean aDefault = a == null || a.isEmpty();
+        boolean bDefault = b == null || b.isEmpty();
+        if (aDefault || bDefault) {
+            return aDefault && bDefault;
+        }
+        return a.equals(b);
     }
 
     public void removeValueForKey(String key, String mmkvId, String namespace) {
-        String namespacedKey = getNamespacedKey(key, namespace);
-        getMMKVInstance(mmkvId).removeValueForKey(namespacedKey);
+        measured("removeValueForKey", mmkvId, () -> {
+            NamespaceInstance nsInstance = namespaceInstance(mmkvId, namespace);
+            if (nsInstance != null) {
+                removeFromNamespaceInstance(new String[] { key }, mmkvId, namespace, nsInstance);
+            } else {
+                String namespacedKey = getNamespacedKey(key, namespace);
+                getMMKVInstance(mmkvId).removeValueForKey(namespacedKey);
+                afterWrite(mmkvId, namespacedKey);
+            }
+            keyChanged(mmkvId, namespace, key, true);
+        });
     }
 
     public void removeValuesForKeys(String[] keys, String mmkvId, String namespace) {
-        if (namespace == null || namespace.isEmpty()) {
-            getMMKVInstance(mmkvId).removeValuesForKeys(keys);
+        measured("removeValuesForKeys", mmkvId, () -> removeValues(keys, mmkvId, namespace));
+    }
+
+    private void removeValues(String[] keys, String mmkvId, String namespace) {
+        NamespaceInstance nsInstance = namespaceInstance(mmkvId, namespace);
+        if (nsInstance != null) {
+            removeFromNamespaceInstance(keys, mmkvId, namespace, nsInstance);
         } else {
-            String[] namespacedKeys = new String[keys.length];
-            for (int i = 0; i < keys.length; i++) {
-                namespacedKeys[i] = getNamespacedKey(keys[i], namespace);
+            String[] namespacedKeys = keys;
+            if (namespace == null || namespace.isEmpty()) {
+                getMMKVInstance(mmkvId).removeValuesForKeys(keys);
+            } else {
+                namespacedKeys = new String[keys.length];
+                for (int i = 0; i < keys.length; i++) {
+                    namespacedKeys[i] = getNamespacedKey(keys[i], namespace);
+                }
+                getMMKVInstance(mmkvId).removeValuesForKeys(namespacedKeys);
+            }
+            for (String namespacedKey : namespacedKeys) {
+                afterWrite(mmkvId, namespacedKey);
             }
-            getMMKVInstance(mmkvId).removeValuesForKeys(namespacedKeys);
+        }
+        for (String key : keys) {
+            keyChanged(mmkvId, namespace, key, true);
         }
     }
 
     public String[] getAllKeys(String mmkvId, String namespace) {
-        String[] allKeys = getMMKVInstance(mmkvId).allKeys();
+        return measured("getAllKeys", mmkvId, () -> allKeys(mmkvId, namespace));
+    }
+
+    private String[] allKeys(String mmkvId, String namespace) {
         if (namespace == null || namespace.isEmpty()) {
-            return allKeys;
+            return getMMKVInstance(mmkvId).allKeys();
         }
-        
-        String prefix = namespace + ":";
-        return java.util.Arrays.stream(allKeys)
-                .filter(key -> key.startsWith(prefix))
-                .map(key -> key.substring(prefix.length()))
-                .toArray(String[]::new);
+
+        NamespaceInstance nsInstance = namespaceInstance(mmkvId, namespace);
+        if (nsInstance != null) {
+            String[] keys = getMMKVInstance(nsInstance.storeId).allKeys();
+            if (!nsInstance.legacyPending) {
+                return keys;
+            }
+            Set<String> merged = new LinkedHashSet<>(Arrays.asList(keys));
+            merged.addAll(Arrays.asList(namespaceIndex(mmkvId).keys(namespace, getMMKVInstance(mmkvId))));
+            return merged.toArray(new String[0]);
+        }
+
+        return namespaceIndex(mmkvId).keys(namespace, getMMKVInstance(mmkvId));
     }
 
     public boolean contains(String key, String mmkvId, String namespace) {
-        String namespacedKey = getNamespacedKey(key, namespace);
-        return getMMKVInstance(mmkvId).containsKey(namespacedKey);
+        return measured("contains", mmkvId, () -> {
+            String namespacedKey = getNamespacedKey(key, namespace);
+            NamespaceInstance nsInstance = namespaceInstance(mmkvId, namespace);
+            if (nsInstance != null) {
+                return getMMKVInstance(nsInstance.storeId).containsKey(key)
+                    || (nsInstance.legacyPending && getMMKVInstance(mmkvId).containsKey(namespacedKey));
+            }
+            return getMMKVInstance(mmkvId).containsKey(namespacedKey);
+        });
     }
 
     public int count(String mmkvId, String namespace) {
-        if (namespace == null || namespace.isEmpty()) {
-            return getMMKVInstance(mmkvId).count();
-        }
-        
-        String[] allKeys = getMMKVInstance(mmkvId).allKeys();
-        String prefix = namespace + ":";
-        return (int) java.util.Arrays.stream(allKeys)
-                .filter(key -> key.startsWith(prefix))
-                .count();
+        return measured("count", mmkvId, () -> {
+            if (namespace == null || namespace.isEmpty()) {
+                return (int) getMMKVInstance(mmkvId).count();
+            }
+
+            NamespaceInstance nsInstance = namespaceInstance(mmkvId, namespace);
+            if (nsInstance != null) {
+                return nsInstance.legacyPending ? allKeys(mmkvId, namespace).length : (int) getMMKVInstance(nsInstance.storeId).count();
+            }
+
+            return namespaceIndex(mmkvId).count(namespace, getMMKVInstance(mmkvId));
+        });
     }
 
     public long totalSize(String mmkvId, String namespace) {
-        return getMMKVInstance(mmkvId).totalSize();
+        return measured("totalSize", mmkvId, () -> {
+            NamespaceInstance nsInstance = namespaceInstance(mmkvId, namespace);
+            if (nsInstance != null) {
+                return getMMKVInstance(nsInstance.storeId).totalSize();
+            }
+            return getMMKVInstance(mmkvId).totalSize();
+        });
     }
 
     public void clearAll(String mmkvId, String namespace) {
+        measured("clearAll", mmkvId, () -> clear(mmkvId, namespace));
+    }
+
+    private void clear(String mmkvId, String namespace) {
         if (namespace == null || namespace.isEmpty()) {
             getMMKVInstance(mmkvId).clearAll();
+            afterClear(mmkvId);
+            if (isNamespaceInstanced(mmkvId)) {
+                for (String registered : getMMKVInstance(registryId(mmkvId)).allKeys()) {
+                    clear(mmkvId, registered);
+                }
+            }
+            if (holdsUntaggedValues(mmkvId)) {
+                synchronized (modesLock) {
+                    // Everything written from now on is tagged
+                    untaggedValueInstances.remove(instanceKey(mmkvId));
+                    saveInstanceModes(mmkvId);
+                    forgetUntaggedKeys(mmkvId);
+                }
+            }
+            keyChanged(mmkvId, null, null, true);
+            return;
+        }
+
+        NamespaceInstance nsInstance = namespaceInstance(mmkvId, namespace);
+        if (nsInstance != null) {
+            // The namespace owns its whole file, so clearing it is a single truncation
+            synchronized (nsInstance) {
+                getMMKVInstance(nsInstance.storeId).clearAll();
+                afterClear(nsInstance.storeId);
+                if (holdsUntaggedValues(nsInstance.storeId)) {
+                    forgetUntaggedKeys(nsInstance.storeId);
+                }
+                if (nsInstance.legacyPending) {
+                    dropLegacyKeys(mmkvId, namespace, nsInstance, namespaceIndex(mmkvId).keys(namespace, getMMKVInstance(mmkvId)));
+                }
+            }
+        } else {
+            String[] keys = allKeys(mmkvId, namespace);
+            if (keys.length > 0) {
+                removeValues(keys, mmkvId, namespace);
+            }
+        }
+        // Replaces the removals of the namespace's keys that are still waiting to be delivered
+        keyChanged(mmkvId, namespace, null, true);
+    }
+
+    // Resolves the instance, namespace and key once, so repeated reads and writes through the returned
+    // handle skip the instance lookup and key concatenation. key may be null, in which case it is given
+    // per call.
+    public int openHandle(String mmkvId, String namespace, String key) {
+        NamespaceInstance nsInstance = namespaceInstance(mmkvId, namespace);
+        Handle handle;
+        if (nsInstance != null) {
+            handle = new Handle(mmkvId, namespace, key, nsInstance, nsInstance.storeId, getMMKVInstance(nsInstance.storeId), "");
+        } else {
+            String prefix = namespace == null || namespace.isEmpty() ? "" : namespace + ":";
+            handle = new Handle(mmkvId, namespace, key, null, mmkvId, getMMKVInstance(mmkvId), prefix);
+        }
+
+        synchronized (handleLock) {
+            Handle[] current = handles;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == null) {
+                    Handle[] updated = current.clone();
+                    updated[i] = handle;
+                    handles = updated;
+                    return i;
+                }
+            }
+            Handle[] updated = Arrays.copyOf(current, current.length * 2);
+            updated[current.length] = handle;
+            handles = updated;
+            return current.length;
+        }
+    }
+
+    public void closeHandle(int handle) {
+        synchronized (handleLock) {
+            Handle[] current = handles;
+            if (handle >= 0 && handle < current.length && current[handle] != null) {
+                Handle[] updated = current.clone();
+                updated[handle] = null;
+                handles = updated;
+            }
+        }
+    }
+
+    public Object getByHandle(int handle, String key, ValueType type) {
+        long start = metricsStart();
+        Handle resolved = resolveHandle(handle);
+        String storeKey = handleKey(resolved, key);
+        AccessProfile profile = accessProfile;
+        if (profile != null) {
+            profile.record(resolved.mmkvId, resolved.namespace, resolved.key != null ? resolved.key : key, type);
+        }
+        Object value;
+        if (resolved.nsInstance != null && resolved.nsInstance.legacyPending) {
+            value = readTypedValue(resolved.key != null ? resolved.key : key, resolved.mmkvId, resolved.namespace, type);
         } else {
-            String[] namespacedKeys = getAllKeys(mmkvId, namespace);
-            if (namespacedKeys.length > 0) {
-                removeValuesForKeys(namespacedKeys, mmkvId, namespace);
+            value = readValue(resolved.storeId, resolved.store, storeKey, resolved.cacheKey, type);
+        }
+        if (start != 0) {
+            recordMetric("getByHandle", resolved.mmkvId, start, 0, sizeOf(value));
+        }
+        return value;
+    }
+
+    public void setByHandle(int handle, String key, ValueType type, Object value) {
+        long start = metricsStart();
+        Handle resolved = resolveHandle(handle);
+        String storeKey = handleKey(resolved, key);
+        if (resolved.nsInstance != null && resolved.nsInstance.legacyPending) {
+            setValue(resolved.key != null ? resolved.key : key, value, resolved.mmkvId, resolved.namespace, type);
+        } else {
+            writeValue(resolved.storeId, resolved.store, storeKey, type, value);
+            keyChanged(resolved.mmkvId, resolved.namespace, resolved.key != null ? resolved.key : key, value == null);
+        }
+        if (start != 0) {
+            recordMetric("setByHandle", resolved.mmkvId, start, sizeOf(value), 0);
+        }
+    }
+
+    private Handle resolveHandle(int handle) {
+        Handle[] current = handles;
+        Handle resolved = handle >= 0 && handle < current.length ? current[handle] : null;
+        if (resolved == null) {
+            throw new IllegalArgumentException("Unknown handle: " + handle);
+        }
+        return resolved;
+    }
+
+    private static String handleKey(Handle handle, String key) {
+        if (handle.storeKey != null) {
+            return handle.storeKey;
+        }
+        if (key == null) {
+            throw new IllegalArgumentException("Key is required");
+        }
+        return handle.prefix.isEmpty() ? key : handle.prefix + key;
+    }
+
+    // In namespace-instance mode every namespace of mmkvId lives in its own store, "<mmkvId>#<namespace>".
+    // Keys still stored with the old "namespace:key" prefix are read in place and move when they are next
+    // written or removed. When every value carries a type tag they are copied over all at once instead.
+    // The mode is persisted like type tagging. Turning it off is refused while any namespace store holds
+    // data, which the prefixed layout would no longer see; keys that were never moved stay readable.
+    public void setNamespaceInstances(String mmkvId, boolean enabled) {
+        String key = instanceKey(mmkvId);
+        synchronized (modesLock) {
+            if (enabled == namespaceInstanceBases.contains(key)) {
+                return;
+            }
+            if (enabled) {
+                namespaceInstanceBases.add(key);
+            } else {
+                if (holdsNamespaceData(mmkvId)) {
+                    throw new IllegalStateException("Clear the instance before turning namespace instances off: " + baseName(mmkvId));
+                }
+                namespaceInstanceBases.remove(key);
+                namespaceInstances.remove(key);
+                namespaceInstanceOwners.values().removeIf(key::equals);
+                // Forget which namespaces were migrated, so turning the mode back on looks for legacy keys again
+                getMMKVInstance(registryId(mmkvId)).clearAll();
+                afterClear(registryId(mmkvId));
             }
+            saveInstanceModes(mmkvId);
+        }
+    }
+
+    public boolean isNamespaceInstanced(String mmkvId) {
+        return !namespaceInstanceBases.isEmpty() && namespaceInstanceBases.contains(instanceKey(mmkvId));
+    }
+
+    private NamespaceInstance namespaceInstance(String mmkvId, String namespace) {
+        if (namespace == null || namespace.isEmpty() || !isNamespaceInstanced(mmkvId)) {
+            return null;
+        }
+        ConcurrentHashMap<String, NamespaceInstance> byNamespace = namespaceInstances.computeIfAbsent(
+            instanceKey(mmkvId),
+            id -> new ConcurrentHashMap<>()
+        );
+        NamespaceInstance nsInstance = byNamespace.get(namespace);
+        if (nsInstance == null) {
+            nsInstance = byNamespace.computeIfAbsent(namespace, ns -> openNamespaceInstance(mmkvId, ns));
+        }
+        return nsInstance;
+    }
+
+    private NamespaceInstance openNamespaceInstance(String mmkvId, String namespace) {
+        String storeId = namespaceStoreId(mmkvId, namespace);
+        namespaceInstanceOwners.put(storeId, instanceKey(mmkvId));
+        if (!writeBehindInstances.isEmpty() && writeBehindInstances.contains(instanceKey(mmkvId))) {
+            instances.setWriteBehind(getMMKVInstance(storeId), true);
+        }
+        ManagedKeyValueStore base = getMMKVInstance(mmkvId);
+        if (base.durability() != Durability.ASYNC) {
+            instances.setDurability(getMMKVInstance(storeId), base.durability(), base.syncIntervalMs());
+        }
+        NamespaceInstance nsInstance = new NamespaceInstance(storeId);
+
+        KeyValueStore registry = getMMKVInstance(registryId(mmkvId));
+        if (registry.decodeInt(namespace, 0) == NAMESPACE_MIGRATED) {
+            return nsInstance;
+        }
+        registry.encode(namespace, NAMESPACE_PENDING);
+
+        String[] legacyKeys = namespaceIndex(mmkvId).keys(namespace, base);
+        if (legacyKeys.length == 0) {
+            registry.encode(namespace, NAMESPACE_MIGRATED);
+            return nsInstance;
+        }
+        nsInstance.legacyPending = true;
+        if (!isTypeTagged(mmkvId) || holdsUntaggedValues(mmkvId)) {
+            return nsInstance;
+        }
+        // Every value carries its type, so the bytes can be copied as they are. Anything that isn't a
+        // well-formed tagged value stays behind and is read in place.
+        KeyValueStore target = getMMKVInstance(storeId);
+        List<String> copied = new ArrayList<>();
+        for (String key : legacyKeys) {
+            byte[] encoded = base.decodeBytes(getNamespacedKey(key, namespace), null);
+            if (TaggedValueCodec.typeOf(encoded) != null) {
+                target.encode(key, encoded);
+                copied.add(key);
+            }
+        }
+        afterClear(storeId);
+        dropLegacyKeys(mmkvId, namespace, nsInstance, copied.toArray(new String[0]));
+        return nsInstance;
+    }
+
+    private void removeFromNamespaceInstance(String[] keys, String mmkvId, String namespace, NamespaceInstance nsInstance) {
+        KeyValueStore store = getMMKVInstance(nsInstance.storeId);
+        if (!nsInstance.legacyPending) {
+            removeKeys(nsInstance.storeId, store, keys);
+            return;
+        }
+        synchronized (nsInstance) {
+            removeKeys(nsInstance.storeId, store, keys);
+            dropLegacyKeys(mmkvId, namespace, nsInstance, keys);
+        }
+    }
+
+    // Caller holds the nsInstance lock while legacy keys are pending
+    private void dropLegacyKeys(String mmkvId, String namespace, NamespaceInstance nsInstance, String[] keys) {
+        KeyValueStore base = getMMKVInstance(mmkvId);
+        List<String> present = new ArrayList<>();
+        for (String key : keys) {
+            String legacyKey = getNamespacedKey(key, namespace);
+            if (base.containsKey(legacyKey)) {
+                present.add(legacyKey);
+            }
+        }
+        if (!present.isEmpty()) {
+            removeKeys(mmkvId, base, present.toArray(new String[0]));
+        }
+        if (nsInstance.legacyPending && namespaceIndex(mmkvId).count(namespace, base) == 0) {
+            getMMKVInstance(registryId(mmkvId)).encode(namespace, NAMESPACE_MIGRATED);
+            nsInstance.legacyPending = false;
+        }
+    }
+
+    private void removeKeys(String storeId, KeyValueStore store, String[] keys) {
+        if (keys.length == 1) {
+            store.removeValueForKey(keys[0]);
+        } else {
+            store.removeValuesForKeys(keys);
+        }
+        for (String key : keys) {
+            afterWrite(storeId, key);
+        }
+    }
+
+    private static String baseName(String mmkvId) {
+        return mmkvId == null || mmkvId.isEmpty() ? DEFAULT_MMKV_ID : mmkvId;
+    }
+
+    private static String namespaceStoreId(String mmkvId, String namespace) {
+        return baseName(mmkvId) + NAMESPACE_INSTANCE_SEPARATOR + namespace;
+    }
+
+    // Lists the namespaces of mmkvId that have their own store, and whether their legacy keys are migrated
+    private static String registryId(String mmkvId) {
+        return baseName(mmkvId) + NAMESPACE_INSTANCE_SEPARATOR;
+    }
+
+    public void configureReadCache(long maxBytes) {
+        readCache = maxBytes > 0 ? new ReadCache(maxBytes) : null;
+    }
+
+    public ReadCache.Stats getReadCacheStats() {
+        ReadCache cache = readCache;
+        return cache != null ? cache.stats() : null;
+    }
+
+    // Type-tagged instances store every value with a one-byte type prefix. The mode is persisted, so it
+    // applies from the first access of later launches too. Values the instance already held stay untagged
+    // and are still read the untagged way. Turning the mode off is refused while the instance holds data,
+    // which would otherwise read back with its tags.
+    public void setTypeTagged(String mmkvId, boolean enabled) {
+        String key = instanceKey(mmkvId);
+        synchronized (modesLock) {
+            if (enabled == typeTaggedInstances.contains(key)) {
+                return;
+            }
+            if (enabled) {
+                if (holdsData(mmkvId)) {
+                    recordUntaggedKeys(mmkvId);
+                    untaggedValueInstances.add(key);
+                }
+                typeTaggedInstances.add(key);
+            } else {
+                if (holdsData(mmkvId)) {
+                    throw new IllegalStateException("Clear the instance before turning type tagging off: " + baseName(mmkvId));
+                }
+                typeTaggedInstances.remove(key);
+                if (untaggedValueInstances.remove(key)) {
+                    forgetUntaggedKeys(mmkvId);
+                }
+            }
+            saveInstanceModes(mmkvId);
+        }
+        afterClear(mmkvId);
+        ConcurrentHashMap<String, NamespaceInstance> byNamespace = namespaceInstances.get(key);
+        if (byNamespace != null) {
+            for (NamespaceInstance nsInstance : byNamespace.values()) {
+                afterClear(nsInstance.storeId);
+            }
+        }
+    }
+
+    public boolean isTypeTagged(String mmkvId) {
+        return !typeTaggedInstances.isEmpty() && typeTaggedInstances.contains(ownerKey(mmkvId));
+    }
+
+    // Whether a type-tagged instance may still hold values written before tagging was turned on
+    private boolean holdsUntaggedValues(String mmkvId) {
+        return !untaggedValueInstances.isEmpty() && untaggedValueInstances.contains(ownerKey(mmkvId));
+    }
+
+    private boolean isUntaggedKey(String storeId, String key) {
+        return holdsUntaggedValues(storeId) && untaggedKeys(storeId).contains(key);
+    }
+
+    private Set<String> untaggedKeys(String storeId) {
+        return untaggedKeys.computeIfAbsent(instanceKey(storeId), id -> {
+            Set<String> keys = ConcurrentHashMap.newKeySet();
+            keys.addAll(Arrays.asList(getMMKVInstance(untaggedKeysId(storeId)).allKeys()));
+            return keys;
+        });
+    }
+
+    // Records the keys of mmkvId and of its namespace stores as holding untagged values; caller holds modesLock
+    private void recordUntaggedKeys(String mmkvId) {
+        List<String> storeIds = new ArrayList<>();
+        storeIds.add(mmkvId);
+        if (isNamespaceInstanced(mmkvId)) {
+            for (String namespace : getMMKVInstance(registryId(mmkvId)).allKeys()) {
+                storeIds.add(namespaceStoreId(mmkvId, namespace));
+            }
+        }
+        for (String storeId : storeIds) {
+            String[] keys = getMMKVInstance(storeId).allKeys();
+            KeyValueStore record = getMMKVInstance(untaggedKeysId(storeId));
+            record.clearAll();
+            for (String key : keys) {
+                record.encode(key, true);
+            }
+            Set<String> recorded = ConcurrentHashMap.newKeySet();
+            recorded.addAll(Arrays.asList(keys));
+            untaggedKeys.put(instanceKey(storeId), recorded);
+        }
+    }
+
+    // Drops the records of mmkvId and of its namespace stores, or only of a namespace store
+    private void forgetUntaggedKeys(String storeId) {
+        List<String> storeIds = new ArrayList<>();
+        storeIds.add(storeId);
+        if (!namespaceInstanceOwners.containsKey(instanceKey(storeId)) && isNamespaceInstanced(storeId)) {
+            for (String namespace : getMMKVInstance(registryId(storeId)).allKeys()) {
+                storeIds.add(namespaceStoreId(storeId, namespace));
+            }
+        }
+        for (String id : storeIds) {
+            untaggedKeys.remove(instanceKey(id));
+            getMMKVInstance(untaggedKeysId(id)).clearAll();
+        }
+    }
+
+    private static String untaggedKeysId(String storeId) {
+        return UNTAGGED_KEYS_PREFIX + baseName(storeId);
+    }
+
+    // Namespace stores inherit the modes of the instance they belong to
+    private String ownerKey(String mmkvId) {
+        String owner = namespaceInstanceOwners.get(instanceKey(mmkvId));
+        return owner != null ? owner : instanceKey(mmkvId);
+    }
+
+    private boolean holdsData(String mmkvId) {
+        return getMMKVInstance(mmkvId).count() > 0 || holdsNamespaceData(mmkvId);
+    }
+
+    private boolean holdsNamespaceData(String mmkvId) {
+        if (isNamespaceInstanced(mmkvId)) {
+            for (String namespace : getMMKVInstance(registryId(mmkvId)).allKeys()) {
+                if (getMMKVInstance(namespaceStoreId(mmkvId, namespace)).count() > 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void loadInstanceModes() {
+        KeyValueStore modes = getMMKVInstance(INSTANCE_MODES_ID);
+        for (String name : modes.allKeys()) {
+            int flags = modes.decodeInt(name, 0);
+            String key = DEFAULT_MMKV_ID.equals(name) ? instanceKey(null) : name;
+            if ((flags & MODE_TYPE_TAGGED) != 0) {
+                typeTaggedInstances.add(key);
+            }
+            if ((flags & MODE_UNTAGGED_VALUES) != 0) {
+                untaggedValueInstances.add(key);
+            }
+            if ((flags & MODE_NAMESPACE_INSTANCES) != 0) {
+                namespaceInstanceBases.add(key);
+            }
+        }
+    }
+
+    // Caller holds modesLock
+    private void saveInstanceModes(String mmkvId) {
+        String key = instanceKey(mmkvId);
+        int flags = 0;
+        if (typeTaggedInstances.contains(key)) {
+            flags |= MODE_TYPE_TAGGED;
+        }
+        if (untaggedValueInstances.contains(key)) {
+            flags |= MODE_UNTAGGED_VALUES;
+        }
+        if (namespaceInstanceBases.contains(key)) {
+            flags |= MODE_NAMESPACE_INSTANCES;
+        }
+        KeyValueStore modes = getMMKVInstance(INSTANCE_MODES_ID);
+        if (flags == 0) {
+            modes.removeValueForKey(baseName(mmkvId));
+        } else {
+            modes.encode(baseName(mmkvId), flags);
+        }
+    }
+
+    private NamespaceIndex namespaceIndex(String mmkvId) {
+        return namespaceIndexes.computeIfAbsent(instanceKey(mmkvId), id -> new NamespaceIndex());
+    }
+
+    private static String instanceKey(String mmkvId) {
+        return mmkvId == null ? "" : mmkvId;
+    }
+
+    // Every mutation of a single key funnels through here after the store has been updated
+    private void afterWrite(String mmkvId, String namespacedKey) {
+        NamespaceIndex index = namespaceIndexes.get(instanceKey(mmkvId));
+        if (index != null) {
+            index.onWrite(namespacedKey, getMMKVInstance(mmkvId));
+        }
+        // Whatever the key holds now was written tagged. Forgotten before the cache entry is dropped, so
+        // that a read which decoded it the untagged way in between can't be cached.
+        if (holdsUntaggedValues(mmkvId) && untaggedKeys(mmkvId).remove(namespacedKey)) {
+            getMMKVInstance(untaggedKeysId(mmkvId)).removeValueForKey(namespacedKey);
+        }
+        ReadCache cache = readCache;
+        if (cache != null) {
+            cache.invalidate(ReadCache.cacheKey(instanceKey(mmkvId), namespacedKey));
+        }
+    }
+
+    // Runs body, timing it as operation on mmkvId while metrics are on. For operations that don't move
+    // values; typed reads and writes count their bytes and time themselves.
+    private <T> T measured(String operation, String mmkvId, Supplier<T> body) {
+        long start = metricsStart();
+        try {
+            return body.get();
+        } finally {
+            if (start != 0) {
+                recordMetric(operation, mmkvId, start, 0, 0);
+            }
+        }
+    }
+
+    private void measured(String operation, String mmkvId, Runnable body) {
+        measured(operation, mmkvId, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    // 0 while metrics are off, so that nothing is recorded for an operation that started before they were
+    // turned on
+    private long metricsStart() {
+        return metrics != null ? System.nanoTime() : 0;
+    }
+
+    private void recordMetric(String operation, String mmkvId, long start, long bytesIn, long bytesOut) {
+        Metrics current = metrics;
+        if (current != null) {
+            current.record(operation, baseName(mmkvId), System.nanoTime() - start, bytesIn, bytesOut);
+        }
+    }
+
+    // For operations that may span instances
+    private void recordMetric(String operation, long start, long bytesIn, long bytesOut) {
+        Metrics current = metrics;
+        if (current != null) {
+            current.record(operation, null, System.nanoTime() - start, bytesIn, bytesOut);
+        }
+    }
+
+    // Strings count one byte per character
+    private static long sizeOf(Object value) {
+        if (value instanceof String) {
+            return ((String) value).length();
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        if (value instanceof Integer || value instanceof Float) {
+            return 4;
+        }
+        return value instanceof Boolean ? 1 : 0;
+    }
+
+    // Reports a change made through the public API to the key watches; key null for clears
+    private void keyChanged(String mmkvId, String namespace, String key, boolean removed) {
+        if (keyChanges.isWatched()) {
+            keyChanges.changed(baseName(mmkvId), normalize(namespace), key, removed);
+        }
+    }
+
+    private void afterClear(String mmkvId) {
+        NamespaceIndex index = namespaceIndexes.get(instanceKey(mmkvId));
+        if (index != null) {
+            index.onClear();
+        }
+        ReadCache cache = readCache;
+        if (cache != null) {
+            cache.invalidateInstance(instanceKey(mmkvId));
         }
     }
-}
\ No newline at end of file
+}
@@ -6,35 +6,368 @@ import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
 
 @CapacitorPlugin(name = "CapacitorMMKV")
 public class CapacitorMMKVPlugin extends Plugin {
 
-    private CapacitorMMKV implementation = new CapacitorMMKV();
+    private static final long DEFAULT_PROFILE_WINDOW_MS = 10000;
+    private static final int DEFAULT_PROFILE_MAX_KEYS = 256;
+    private static final long DEFAULT_MAINTENANCE_INTERVAL_MS = 60000;
+    private static final double DEFAULT_FRAGMENTATION_THRESHOLD = 0.5;
+    private static final long DEFAULT_MAINTENANCE_IDLE_MS = 30000;
+    private static final long DEFAULT_MAINTENANCE_BUDGET_MS = 50;
+    private static final long DEFAULT_FLUSH_INTERVAL_MS = 1000;
+    private static final int DEFAULT_MAX_PENDING_WRITES = 256;
+    private static final String LOG_DIRECTORY = "capacitor-mmkv-logs";
+
+    private CapacitorMMKV implementation;
+    private final CallGate readyGate = new CallGate();
+    private volatile Throwable initError;
+    private long loadStartNanos;
+    private volatile long readyNanos;
+    private volatile PrewarmStats prewarmStats;
+    private volatile int profiledKeyCount;
+    private FileLogSink fileLogSink; // null unless file logging is configured
+    private volatile boolean callTiming;
 
     @Override
     public void load() {
-        implementation.initialize();
-        
-        // Set up log listener to send events to JavaScript
-        implementation.setLogListener(new CapacitorMMKV.MMKVLogListener() {
-            @Override
-            public void onLog(int level, String message, String mmkvId) {
-                JSObject logEvent = new JSObject();
-                logEvent.put("level", level);
-                logEvent.put("message", message);
-                logEvent.put("timestamp", System.currentTimeMillis());
-                if (mmkvId != null) {
-                    logEvent.put("mmkvId", mmkvId);
+        loadStartNanos = System.nanoTime();
+        implementation = new CapacitorMMKV(new MMKVStorageBackend(getContext(), resolveRootDir()));
+
+        configureLogging();
+
+        // Each coalesced batch of key changes goes to JavaScript as a single event
+        implementation.setKeyChangeListener(changes -> {
+            JSArray events = new JSArray();
+            for (KeyChange change : changes) {
+                JSObject event = new JSObject();
+                event.put("mmkvId", change.mmkvId);
+                if (change.namespace != null) {
+                    event.put("namespace", change.namespace);
                 }
-                
+                if (change.key != null) {
+                    event.put("key", change.key);
+                    event.put("change", change.removed ? "remove" : "set");
+                } else {
+                    event.put("change", "clear");
+                }
+                JSArray watchIds = new JSArray();
+                for (int watchId : change.watchIds) {
+                    watchIds.put(watchId);
+                }
+                event.put("watchIds", watchIds);
+                events.put(event);
+            }
+            JSObject batch = new JSObject();
+            batch.put("changes", events);
+            notifyListeners("keyChanged", batch);
+        });
+        implementation.setKeyChangeWindow(getConfig().getInt("keyChangeWindowMs", (int) KeyChangeNotifier.DEFAULT_WINDOW_MS));
+
+        // Loading the native library and mapping the default instance stay off the startup path;
+        // calls that arrive before that is done are parked and replayed in order
+        new Thread(this::initializeImplementation, "CapacitorMMKV-init").start();
+    }
+
+    private void initializeImplementation() {
+        try {
+            implementation.initialize();
+            implementation.configureReadCache(getConfig().getInt("readCacheBytes", 0));
+            implementation.configureInstanceEviction(
+                getConfig().getInt("instanceIdleTimeoutMs", 0),
+                getConfig().getInt("maxMappedBytes", 0)
+            );
+            configureMaintenance();
+            configureWriteBehind();
+            configureMetrics();
+            callTiming = getConfig().getBoolean("callTiming", false);
+            startPrewarm();
+        } catch (RuntimeException | LinkageError e) {
+            initError = e;
+        }
+        readyNanos = System.nanoTime();
+        readyGate.open();
+    }
+
+    // "logging": { "level": 0, "bufferSize": 1024, "flushIntervalMs": 100, "maxBatch": 128,
+    //              "levels": { "debug": { "maxPerSecond": 100, "sampleRate": 0.5 } },
+    //              "file": { "maxFileBytes": 1048576, "maxFiles": 3 } }
+    private void configureLogging() {
+        JSONObject config = getConfig().getConfigJSON();
+        JSONObject logging = config != null ? config.optJSONObject("logging") : null;
+        if (logging == null) {
+            logging = new JSONObject();
+        }
+        JSONObject file = logging.optJSONObject("file");
+        if (file != null) {
+            fileLogSink = new FileLogSink(
+                new File(getContext().getFilesDir(), LOG_DIRECTORY),
+                file.optLong("maxFileBytes", FileLogSink.DEFAULT_MAX_FILE_BYTES),
+                file.optInt("maxFiles", FileLogSink.DEFAULT_MAX_FILES)
+            );
+        }
+        implementation.setLogListener(
+            this::deliverLogs,
+            logging.optInt("bufferSize", LogBuffer.DEFAULT_CAPACITY),
+            logging.optLong("flushIntervalMs", LogBuffer.DEFAULT_FLUSH_INTERVAL_MS),
+            logging.optInt("maxBatch", LogBuffer.DEFAULT_MAX_BATCH)
+        );
+        JSONObject levels = logging.optJSONObject("levels");
+        String[] names = { null, "error", "warn", "info", "debug", "verbose" };
+        for (int level = CapacitorMMKV.LOG_LEVEL_ERROR; levels != null && level < names.length; level++) {
+            JSONObject limit = levels.optJSONObject(names[level]);
+            if (limit != null) {
+                implementation.setLogLevelLimit(level, limit.optInt("maxPerSecond", 0), limit.optDouble("sampleRate", 1));
+            }
+        }
+        implementation.setLogLevel(logging.optInt("level", CapacitorMMKV.LOG_LEVEL_NONE));
+    }
+
+    // Written to the log files when configured, and sent to JavaScript only when someone listens: one
+    // mmkvLogBatch event per batch, while mmkvLog listeners still get an event per entry
+    private void deliverLogs(List<LogEntry> entries, long dropped) {
+        if (fileLogSink != null) {
+            fileLogSink.onLogs(entries, dropped);
+        }
+        boolean perEntry = hasListeners("mmkvLog");
+        boolean batched = hasListeners("mmkvLogBatch");
+        if (!perEntry && !batched) {
+            return;
+        }
+        JSArray events = new JSArray();
+        for (LogEntry entry : entries) {
+            JSObject logEvent = new JSObject();
+            logEvent.put("level", entry.level);
+            logEvent.put("message", entry.message);
+            logEvent.put("timestamp", entry.timestamp);
+            if (entry.mmkvId != null) {
+                logEvent.put("mmkvId", entry.mmkvId);
+            }
+            events.put(logEvent);
+            if (perEntry) {
                 notifyListeners("mmkvLog", logEvent);
             }
+        }
+        if (batched) {
+            JSObject batch = new JSObject();
+            batch.put("entries", events);
+            batch.put("dropped", dropped);
+            notifyListeners("mmkvLogBatch", batch);
+        }
+    }
+
+    // "writeBehind": { "intervalMs": 1000, "maxPendingWrites": 256, "instances": ["drafts"] }
+    private void configureWriteBehind() {
+        JSONObject config = getConfig().getConfigJSON();
+        JSONObject writeBehind = config != null ? config.optJSONObject("writeBehind") : null;
+        if (writeBehind == null) {
+            return;
+        }
+        implementation.configureWriteBehind(
+            writeBehind.optLong("intervalMs", DEFAULT_FLUSH_INTERVAL_MS),
+            writeBehind.optInt("maxPendingWrites", DEFAULT_MAX_PENDING_WRITES)
+        );
+        JSONArray ids = writeBehind.optJSONArray("instances");
+        for (int i = 0; ids != null && i < ids.length(); i++) {
+            implementation.setWriteBehind(ids.isNull(i) ? null : ids.optString(i), true);
+        }
+    }
+
+    // "metrics": { "enabled": true, "reportIntervalMs": 10000 }
+    private void configureMetrics() {
+        JSONObject config = getConfig().getConfigJSON();
+        JSONObject metrics = config != null ? config.optJSONObject("metrics") : null;
+        implementation.setMetricsListener(snapshot -> {
+            if (hasListeners("metrics")) {
+                notifyListeners("metrics", toJSMetrics(snapshot));
+            }
         });
+        if (metrics != null) {
+            implementation.configureMetrics(metrics.optBoolean("enabled", true), metrics.optLong("reportIntervalMs", 0));
+        }
+    }
+
+    // "maintenance": { "intervalMs": 60000, "fragmentationThreshold": 0.5, "idleMs": 30000, "budgetMs": 50 }
+    private void configureMaintenance() {
+        JSONObject config = getConfig().getConfigJSON();
+        JSONObject maintenance = config != null ? config.optJSONObject("maintenance") : null;
+        if (maintenance == null) {
+            return;
+        }
+        implementation.configureMaintenance(
+            maintenance.optLong("intervalMs", DEFAULT_MAINTENANCE_INTERVAL_MS),
+            maintenance.optDouble("fragmentationThreshold", DEFAULT_FRAGMENTATION_THRESHOLD),
+            maintenance.optLong("idleMs", DEFAULT_MAINTENANCE_IDLE_MS),
+            maintenance.optLong("budgetMs", DEFAULT_MAINTENANCE_BUDGET_MS)
+        );
+    }
+
+    @Override
+    protected void handleOnPause() {
+        super.handleOnPause();
+        // The process may be killed once in the background, so buffered writes go out now
+        syncOnLifecycle();
+        implementation.setAppInBackground(true);
+    }
+
+    @Override
+    protected void handleOnStop() {
+        super.handleOnStop();
+        // Writes buffered since onPause go out in the background too; the main thread never waits on disk
+        syncOnLifecycle();
+    }
+
+    private void syncOnLifecycle() {
+        implementation
+            .syncOnLifecycle()
+            .whenComplete((done, error) -> {
+                if (error != null) {
+                    implementation.reportError("Lifecycle sync failed: " + error.getMessage());
+                }
+            });
+    }
+
+    @Override
+    protected void handleOnResume() {
+        super.handleOnResume();
+        implementation.setAppInBackground(false);
+    }
+
+    // "prewarm": [{ "mmkvId": "profile", "namespace": "user", "keys": ["name", { "key": "age", "type": "int" }] }]
+    // Entries without keys only open their instance. With "accessProfile", the keys the previous session
+    // read during its first windowMs are prewarmed as well, and this session's reads are recorded.
+    private void startPrewarm() {
+        JSONObject config = getConfig().getConfigJSON();
+        JSONArray groups = config != null ? config.optJSONArray("prewarm") : null;
+        JSONObject profileConfig = config != null ? config.optJSONObject("accessProfile") : null;
+
+        List<String> mmkvIds = new ArrayList<>();
+        List<BatchEntry> keys = new ArrayList<>();
+        try {
+            for (int i = 0; groups != null && i < groups.length(); i++) {
+                JSONObject group = groups.getJSONObject(i);
+                String mmkvId = optString(group, "mmkvId", null);
+                String namespace = optString(group, "namespace", null);
+                mmkvIds.add(mmkvId);
+                JSONArray groupKeys = group.optJSONArray("keys");
+                for (int j = 0; groupKeys != null && j < groupKeys.length(); j++) {
+                    Object item = groupKeys.get(j);
+                    if (item instanceof JSONObject) {
+                        keys.add(parseBatchEntry((JSONObject) item, mmkvId, namespace, false));
+                    } else {
+                        keys.add(new BatchEntry(String.valueOf(item), ValueType.STRING, null, mmkvId, namespace, null));
+                    }
+                }
+            }
+        } catch (JSONException | IllegalArgumentException e) {
+            implementation.reportError("Invalid prewarm config: " + e.getMessage());
+        }
+
+        if (profileConfig != null) {
+            List<BatchEntry> profiled = implementation.loadAccessProfile();
+            profiledKeyCount = profiled.size();
+            keys.addAll(profiled);
+            implementation.startAccessProfile(
+                profileConfig.optLong("windowMs", DEFAULT_PROFILE_WINDOW_MS),
+                profileConfig.optInt("maxKeys", DEFAULT_PROFILE_MAX_KEYS)
+            );
+        }
+        if (mmkvIds.isEmpty() && keys.isEmpty()) {
+            return;
+        }
+
+        implementation
+            .prewarm(mmkvIds, keys)
+            .whenComplete((stats, error) -> {
+                if (error != null) {
+                    implementation.reportError("Prewarm failed: " + error.getMessage());
+                }
+                prewarmStats = stats;
+            });
+    }
+
+    private String resolveRootDir() {
+        String rootDir = getConfig().getString("rootDir", null);
+        if (rootDir == null || rootDir.isEmpty()) {
+            return null;
+        }
+        File dir = new File(rootDir);
+        return dir.isAbsolute() ? dir.getPath() : new File(getContext().getFilesDir(), rootDir).getPath();
+    }
+
+    // Returns true when the call was parked until initialization completes, or rejected because it failed
+    private boolean deferUntilReady(PluginCall call, Consumer<PluginCall> method) {
+        // The replayed method comes back through here on the replaying thread, which the gate lets through
+        if (!readyGate.isOpen() && readyGate.park(() -> replay(call, method))) {
+            return true;
+        }
+        return rejectIfInitFailed(call);
+    }
+
+    private static void replay(PluginCall call, Consumer<PluginCall> method) {
+        try {
+            method.accept(call);
+        } catch (RuntimeException e) {
+            call.reject("Error processing call", e);
+        }
+    }
+
+    private boolean rejectIfInitFailed(PluginCall call) {
+        Throwable error = initError;
+        if (error == null) {
+            return false;
+        }
+        call.reject("MMKV failed to initialize: " + error.getMessage());
+        return true;
+    }
+
+    @PluginMethod
+    public void getInitTiming(PluginCall call) {
+        InitTiming timing = implementation.getInitTiming();
+        JSObject ret = new JSObject();
+        boolean ready = readyGate.isOpen();
+        ret.put("ready", ready);
+        if (timing != null) {
+            ret.put("backendMs", timing.backendNanos / 1e6);
+            ret.put("openDefaultMs", timing.openDefaultNanos / 1e6);
+        }
+        if (ready) {
+            ret.put("loadToReadyMs", (readyNanos - loadStartNanos) / 1e6);
+        }
+        ret.put("parkedCalls", readyGate.parkedCount());
+        PrewarmStats prewarm = prewarmStats;
+        if (prewarm != null) {
+            JSObject prewarmInfo = new JSObject();
+            prewarmInfo.put("ms", prewarm.nanos / 1e6);
+            prewarmInfo.put("instances", prewarm.instances);
+            prewarmInfo.put("keys", prewarm.keys);
+            prewarmInfo.put("found", prewarm.found);
+            prewarmInfo.put("profiledKeys", profiledKeyCount);
+            ret.put("prewarm", prewarmInfo);
+        }
+        if (initError != null) {
+            ret.put("error", String.valueOf(initError.getMessage()));
+        }
+        call.resolve(ret);
     }
 
     @PluginMethod
     public void setString(PluginCall call) {
+        if (deferUntilReady(call, this::setString)) {
+            return;
+        }
+
+        CallTiming timing = startTiming(call);
         String key = call.getString("key");
         String value = call.getString("value");
         String mmkvId = call.getString("mmkvId");
@@ -45,12 +378,20 @@ public class CapacitorMMKVPlugin extends Plugin {
             return;
         }
         
+        timing.parsed();
+        timing.resolve(implementation, mmkvId, namespace);
         implementation.setString(key, value, mmkvId, namespace);
-        call.resolve();
+        timing.stored();
+        resolve(call, null, timing);
     }
 
     @PluginMethod
     public void getString(PluginCall call) {
+        if (deferUntilReady(call, this::getString)) {
+            return;
+        }
+
+        CallTiming timing = startTiming(call);
         String key = call.getString("key");
         String mmkvId = call.getString("mmkvId");
         String namespace = call.getString("namespace");
@@ -60,14 +401,22 @@ public class CapacitorMMKVPlugin extends Plugin {
             return;
         }
         
+        timing.parsed();
+        timing.resolve(implementation, mmkvId, namespace);
         String value = implementation.getString(key, mmkvId, namespace);
+        timing.stored();
         JSObject ret = new JSObject();
         ret.put("value", value);
-        call.resolve(ret);
+        resolve(call, ret, timing);
     }
 
     @PluginMethod
     public void setInt(PluginCall call) {
+        if (deferUntilReady(call, this::setInt)) {
+            return;
+        }
+
+        CallTiming timing = startTiming(call);
         String key = call.getString("key");
         Integer value = call.getInt("value");
         String mmkvId = call.getString("mmkvId");
@@ -82,12 +431,20 @@ public class CapacitorMMKVPlugin extends Plugin {
             return;
         }
         
+        timing.parsed();
+        timing.resolve(implementation, mmkvId, namespace);
         implementation.setInt(key, value, mmkvId, namespace);
-        call.resolve();
+        timing.stored();
+        resolve(call, null, timing);
     }
 
     @PluginMethod
     public void getInt(PluginCall call) {
+        if (deferUntilReady(call, this::getInt)) {
+            return;
+        }
+
+        CallTiming timing = startTiming(call);
         String key = call.getString("key");
         String mmkvId = call.getString("mmkvId");
         String namespace = call.getString("namespace");
@@ -97,14 +454,22 @@ public class CapacitorMMKVPlugin extends Plugin {
             return;
         }
         
+        timing.parsed();
+        timing.resolve(implementation, mmkvId, namespace);
         Integer value = implementation.getInt(key, mmkvId, namespace);
+        timing.stored();
         JSObject ret = new JSObject();
         ret.put("value", value);
-        call.resolve(ret);
+        resolve(call, ret, timing);
     }
 
     @PluginMethod
     public void setBool(PluginCall call) {
+        if (deferUntilReady(call, this::setBool)) {
+            return;
+        }
+
+        CallTiming timing = startTiming(call);
         String key = call.getString("key");
         Boolean value = call.getBoolean("value");
         String mmkvId = call.getString("mmkvId");
@@ -119,12 +484,20 @@ public class CapacitorMMKVPlugin extends Plugin {
             return;
         }
         
+        timing.parsed();
+        timing.resolve(implementation, mmkvId, namespace);
         implementation.setBool(key, value, mmkvId, namespace);
-        call.resolve();
+        timing.stored();
+        resolve(call, null, timing);
     }
 
     @PluginMethod
     public void getBool(PluginCall call) {
+        if (deferUntilReady(call, this::getBool)) {
+            return;
+        }
+
+        CallTiming timing = startTiming(call);
         String key = call.getString("key");
         String mmkvId = call.getString("mmkvId");
         String namespace = call.getString("namespace");
@@ -134,14 +507,22 @@ public class CapacitorMMKVPlugin extends Plugin {
             return;
         }
         
+        timing.parsed();
+        timing.resolve(implementation, mmkvId, namespace);
         Boolean value = implementation.getBool(key, mmkvId, namespace);
+        timing.stored();
         JSObject ret = new JSObject();
         ret.put("value", value);
-        call.resolve(ret);
+        resolve(call, ret, timing);
     }
 
     @PluginMethod
     public void setFloat(PluginCall call) {
+        if (deferUntilReady(call, this::setFloat)) {
+            return;
+        }
+
+        CallTiming timing = startTiming(call);
         String key = call.getString("key");
         Float value = call.getFloat("value");
         String mmkvId = call.getString("mmkvId");
@@ -156,12 +537,20 @@ public class CapacitorMMKVPlugin extends Plugin {
             return;
         }
         
+        timing.parsed();
+        timing.resolve(implementation, mmkvId, namespace);
         implementation.setFloat(key, value, mmkvId, namespace);
-        call.resolve();
+        timing.stored();
+        resolve(call, null, timing);
     }
 
     @PluginMethod
     public void getFloat(PluginCall call) {
+        if (deferUntilReady(call, this::getFloat)) {
+            return;
+        }
+
+        CallTiming timing = startTiming(call);
         String key = call.getString("key");
         String mmkvId = call.getString("mmkvId");
         String namespace = call.getString("namespace");
@@ -171,14 +560,22 @@ public class CapacitorMMKVPlugin extends Plugin {
             return;
         }
         
+        timing.parsed();
+        timing.resolve(implementation, mmkvId, namespace);
         Float value = implementation.getFloat(key, mmkvId, namespace);
+        timing.stored();
         JSObject ret = new JSObject();
         ret.put("value", value);
-        call.resolve(ret);
+        resolve(call, ret, timing);
     }
 
     @PluginMethod
     public void setBytes(PluginCall call) {
+        if (deferUntilReady(call, this::setBytes)) {
+            return;
+        }
+
+        CallTiming timing = startTiming(call);
         String key = call.getString("key");
         byte[] value = call.getData("value");
         String mmkvId = call.getString("mmkvId");
@@ -193,12 +590,20 @@ public class CapacitorMMKVPlugin extends Plugin {
             return;
         }
         
+        timing.parsed();
+        timing.resolve(implementation, mmkvId, namespace);
         implementation.setBytes(key, value, mmkvId, namespace);
-        call.resolve();
+        timing.stored();
+        resolve(call, null, timing);
     }
 
     @PluginMethod
     public void getBytes(PluginCall call) {
+        if (deferUntilReady(call, this::getBytes)) {
+            return;
+        }
+
+        CallTiming timing = startTiming(call);
         String key = call.getString("key");
         String mmkvId = call.getString("mmkvId");
         String namespace = call.getString("namespace");
@@ -208,14 +613,22 @@ public class CapacitorMMKVPlugin extends Plugin {
             return;
         }
         
+        timing.parsed();
+        timing.resolve(implementation, mmkvId, namespace);
         byte[] value = implementation.getBytes(key, mmkvId, namespace);
+        timing.stored();
         JSObject ret = new JSObject();
         ret.put("value", value);
-        call.resolve(ret);
+        resolve(call, ret, timing);
     }
 
     @PluginMethod
     public void removeValueForKey(PluginCall call) {
+        if (deferUntilReady(call, this::removeValueForKey)) {
+            return;
+        }
+
+        CallTiming timing = startTiming(call);
         String key = call.getString("key");
         String mmkvId = call.getString("mmkvId");
         String namespace = call.getString("namespace");
@@ -225,12 +638,20 @@ public class CapacitorMMKVPlugin extends Plugin {
             return;
         }
         
+        timing.parsed();
+        timing.resolve(implementation, mmkvId, namespace);
         implementation.removeValueForKey(key, mmkvId, namespace);
-        call.resolve();
+        timing.stored();
+        resolve(call, null, timing);
     }
 
     @PluginMethod
     public void removeValuesForKeys(PluginCall call) {
+        if (deferUntilReady(call, this::removeValuesForKeys)) {
+            return;
+        }
+
+        CallTiming timing = startTiming(call);
         JSArray keys = call.getArray("keys");
         String mmkvId = call.getString("mmkvId");
         String namespace = call.getString("namespace");
@@ -245,8 +666,11 @@ public class CapacitorMMKVPlugin extends Plugin {
             for (int i = 0; i < keys.length(); i++) {
                 keyArray[i] = keys.getString(i);
             }
+            timing.parsed();
+            timing.resolve(implementation, mmkvId, namespace);
             implementation.removeValuesForKeys(keyArray, mmkvId, namespace);
-            call.resolve();
+            timing.stored();
+            resolve(call, null, timing);
         } catch (Exception e) {
             call.reject("Error processing keys array", e);
         }
@@ -254,20 +678,33 @@ public class CapacitorMMKVPlugin extends Plugin {
 
     @PluginMethod
     public void getAllKeys(PluginCall call) {
+        if (deferUntilReady(call, this::getAllKeys)) {
+            return;
+        }
+
+        CallTiming timing = startTiming(call);
         String mmkvId = call.getString("mmkvId");
         String namespace = call.getString("namespace");
+        timing.parsed();
+        timing.resolve(implementation, mmkvId, namespace);
         String[] keys = implementation.getAllKeys(mmkvId, namespace);
+        timing.stored();
         JSObject ret = new JSObject();
         JSArray keysArray = new JSArray();
         for (String key : keys) {
             keysArray.put(key);
         }
         ret.put("keys", keysArray);
-        call.resolve(ret);
+        resolve(call, ret, timing);
     }
 
     @PluginMethod
     public void contains(PluginCall call) {
+        if (deferUntilReady(call, this::contains)) {
+            return;
+        }
+
+        CallTiming timing = startTiming(call);
         String key = call.getString("key");
         String mmkvId = call.getString("mmkvId");
         String namespace = call.getString("namespace");
@@ -277,42 +714,596 @@ public class CapacitorMMKVPlugin extends Plugin {
             return;
         }
         
+        timing.parsed();
+        timing.resolve(implementation, mmkvId, namespace);
         boolean exists = implementation.contains(key, mmkvId, namespace);
+        timing.stored();
         JSObject ret = new JSObject();
         ret.put("exists", exists);
-        call.resolve(ret);
+        resolve(call, ret, timing);
     }
 
     @PluginMethod
     public void count(PluginCall call) {
+        if (deferUntilReady(call, this::count)) {
+            return;
+        }
+
+        CallTiming timing = startTiming(call);
         String mmkvId = call.getString("mmkvId");
         String namespace = call.getString("namespace");
+        timing.parsed();
+        timing.resolve(implementation, mmkvId, namespace);
         int count = implementation.count(mmkvId, namespace);
+        timing.stored();
         JSObject ret = new JSObject();
         ret.put("count", count);
-        call.resolve(ret);
+        resolve(call, ret, timing);
     }
 
     @PluginMethod
     public void totalSize(PluginCall call) {
+        if (deferUntilReady(call, this::totalSize)) {
+            return;
+        }
+
+        CallTiming timing = startTiming(call);
         String mmkvId = call.getString("mmkvId");
         String namespace = call.getString("namespace");
+        timing.parsed();
+        timing.resolve(implementation, mmkvId, namespace);
         long size = implementation.totalSize(mmkvId, namespace);
+        timing.stored();
         JSObject ret = new JSObject();
         ret.put("size", size);
-        call.resolve(ret);
+        resolve(call, ret, timing);
     }
 
     @PluginMethod
     public void clearAll(PluginCall call) {
+        if (deferUntilReady(call, this::clearAll)) {
+            return;
+        }
+
+        CallTiming timing = startTiming(call);
         String mmkvId = call.getString("mmkvId");
         String namespace = call.getString("namespace");
+        timing.parsed();
+        timing.resolve(implementation, mmkvId, namespace);
         implementation.clearAll(mmkvId, namespace);
+        timing.stored();
+        resolve(call, null, timing);
+    }
+
+    @PluginMethod
+    public void getValue(PluginCall call) {
+        if (deferUntilReady(call, this::getValue)) {
+            return;
+        }
+
+        CallTiming timing = startTiming(call);
+        String key = call.getString("key");
+        String mmkvId = call.getString("mmkvId");
+        String namespace = call.getString("namespace");
+
+        if (key == null) {
+            call.reject("Key is required");
+            return;
+        }
+
+        TypedValue typed;
+        try {
+            timing.parsed();
+            timing.resolve(implementation, mmkvId, namespace);
+            typed = implementation.getValue(key, mmkvId, namespace);
+            timing.stored();
+        } catch (IllegalStateException e) {
+            call.reject(e.getMessage());
+            return;
+        }
+        JSObject ret = new JSObject();
+        ret.put("value", typed != null ? toJSValue(typed.value) : JSONObject.NULL);
+        ret.put("type", typed != null ? typed.type.getJsName() : JSONObject.NULL);
+        resolve(call, ret, timing);
+    }
+
+    @PluginMethod
+    public void openHandle(PluginCall call) {
+        if (deferUntilReady(call, this::openHandle)) {
+            return;
+        }
+
+        String key = call.getString("key");
+        String mmkvId = call.getString("mmkvId");
+        String namespace = call.getString("namespace");
+
+        JSObject ret = new JSObject();
+        ret.put("handle", implementation.openHandle(mmkvId, namespace, key));
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void closeHandle(PluginCall call) {
+        if (deferUntilReady(call, this::closeHandle)) {
+            return;
+        }
+
+        Integer handle = call.getInt("handle");
+
+        if (handle == null) {
+            call.reject("Handle is required");
+            return;
+        }
+
+        implementation.closeHandle(handle);
         call.resolve();
     }
 
+    @PluginMethod
+    public void getByHandle(PluginCall call) {
+        if (deferUntilReady(call, this::getByHandle)) {
+            return;
+        }
+
+        CallTiming timing = startTiming(call);
+        Integer handle = call.getInt("handle");
+        ValueType type = ValueType.fromJsName(call.getString("type", ValueType.STRING.getJsName()));
+
+        if (handle == null) {
+            call.reject("Handle is required");
+            return;
+        }
+        if (type == null) {
+            call.reject("Unsupported type: " + call.getString("type"));
+            return;
+        }
+
+        try {
+            String key = call.getString("key");
+            // Handles are resolved when opened, so there is no resolve phase
+            timing.parsed();
+            Object value = implementation.getByHandle(handle, key, type);
+            timing.stored();
+            JSObject ret = new JSObject();
+            ret.put("value", toJSValue(value));
+            resolve(call, ret, timing);
+        } catch (IllegalArgumentException e) {
+            call.reject(e.getMessage());
+        }
+    }
+
+    @PluginMethod
+    public void setByHandle(PluginCall call) {
+        if (deferUntilReady(call, this::setByHandle)) {
+            return;
+        }
+
+        CallTiming timing = startTiming(call);
+        Integer handle = call.getInt("handle");
+        ValueType type = ValueType.fromJsName(call.getString("type", ValueType.STRING.getJsName()));
+
+        if (handle == null) {
+            call.reject("Handle is required");
+            return;
+        }
+        if (type == null) {
+            call.reject("Unsupported type: " + call.getString("type"));
+            return;
+        }
+
+        try {
+            Object value = readTypedValue(call.getData(), "value", type);
+            String key = call.getString("key");
+            timing.parsed();
+            implementation.setByHandle(handle, key, type, value);
+            timing.stored();
+            resolve(call, null, timing);
+        } catch (IllegalArgumentException e) {
+            call.reject(e.getMessage());
+        } catch (JSONException e) {
+            call.reject("Error processing value", e);
+        }
+    }
+
+    @PluginMethod
+    public void getMany(PluginCall call) {
+        if (deferUntilReady(call, this::getMany)) {
+            return;
+        }
+
+        CallTiming timing = startTiming(call);
+        JSArray keys = call.getArray("keys");
+        String mmkvId = call.getString("mmkvId");
+        String namespace = call.getString("namespace");
+
+        if (keys == null) {
+            call.reject("Keys array is required");
+            return;
+        }
+
+        List<BatchEntry> entries;
+        try {
+            entries = parseBatchEntries(keys, mmkvId, namespace, false);
+        } catch (IllegalArgumentException e) {
+            call.reject(e.getMessage());
+            return;
+        } catch (JSONException e) {
+            call.reject("Error processing keys array", e);
+            return;
+        }
+
+        timing.parsed();
+        timing.resolve(implementation, entries);
+        Map<String, Object> values = implementation.getMany(entries);
+        timing.stored();
+        JSObject valuesObject = new JSObject();
+        for (Map.Entry<String, Object> value : values.entrySet()) {
+            valuesObject.put(value.getKey(), toJSValue(value.getValue()));
+        }
+        JSObject ret = new JSObject();
+        ret.put("values", valuesObject);
+        resolve(call, ret, timing);
+    }
+
+    @PluginMethod
+    public void setMany(PluginCall call) {
+        if (deferUntilReady(call, this::setMany)) {
+            return;
+        }
+
+        CallTiming timing = startTiming(call);
+        JSArray entries = call.getArray("entries");
+        String mmkvId = call.getString("mmkvId");
+        String namespace = call.getString("namespace");
+
+        if (entries == null) {
+            call.reject("Entries array is required");
+            return;
+        }
+
+        try {
+            List<BatchEntry> parsed = parseBatchEntries(entries, mmkvId, namespace, true);
+            timing.parsed();
+            timing.resolve(implementation, parsed);
+            implementation.setMany(parsed);
+            timing.stored();
+            resolve(call, null, timing);
+        } catch (IllegalArgumentException e) {
+            call.reject(e.getMessage());
+        } catch (JSONException e) {
+            call.reject("Error processing entries array", e);
+        }
+    }
+
+    @PluginMethod
+    public void pipeline(PluginCall call) {
+        if (deferUntilReady(call, this::pipeline)) {
+            return;
+        }
+
+        CallTiming timing = startTiming(call);
+        JSArray operations = call.getArray("operations");
+        String mmkvId = call.getString("mmkvId");
+        String namespace = call.getString("namespace");
+
+        if (operations == null) {
+            call.reject("Operations array is required");
+            return;
+        }
+
+        List<PipelineOperation> parsed = new ArrayList<>(operations.length());
+        try {
+            for (int i = 0; i < operations.length(); i++) {
+                parsed.add(parsePipelineOperation(operations.getJSONObject(i), mmkvId, namespace));
+            }
+        } catch (JSONException e) {
+            call.reject("Error processing operations array", e);
+            return;
+        }
+
+        timing.parsed();
+        timing.resolveOperations(implementation, parsed);
+        List<PipelineResult> pipelineResults = implementation.pipeline(parsed);
+        timing.stored();
+        JSArray results = new JSArray();
+        for (PipelineResult result : pipelineResults) {
+            JSObject item = new JSObject();
+            if (!result.isSuccess()) {
+                item.put("error", result.error);
+            } else if (result.field != null) {
+                item.put(result.field, toJSValue(result.value));
+            }
+            results.put(item);
+        }
+        JSObject ret = new JSObject();
+        ret.put("results", results);
+        resolve(call, ret, timing);
+    }
+
+    @PluginMethod
+    public void configureInstance(PluginCall call) {
+        if (deferUntilReady(call, this::configureInstance)) {
+            return;
+        }
+
+        String mmkvId = call.getString("mmkvId");
+        Boolean typeTagged = call.getBoolean("typeTagged");
+        Boolean namespaceInstances = call.getBoolean("namespaceInstances");
+        Boolean writeBehind = call.getBoolean("writeBehind");
+        String durabilityName = call.getString("durability");
+        Durability durability = durabilityName != null ? Durability.fromJsName(durabilityName) : null;
+
+        if (durabilityName != null && durability == null) {
+            call.reject("Unsupported durability: " + durabilityName);
+            return;
+        }
+        if (durability == Durability.PERIODIC && call.getLong("syncIntervalMs") == null) {
+            call.reject("syncIntervalMs is required for periodic durability");
+            return;
+        }
+
+        try {
+            if (typeTagged != null) {
+                implementation.setTypeTagged(mmkvId, typeTagged);
+            }
+            if (namespaceInstances != null) {
+                implementation.setNamespaceInstances(mmkvId, namespaceInstances);
+            }
+        } catch (IllegalStateException e) {
+            call.reject(e.getMessage());
+            return;
+        }
+        if (writeBehind != null) {
+            implementation.setWriteBehind(mmkvId, writeBehind);
+        }
+        if (durability != null) {
+            implementation.setDurability(mmkvId, durability, call.getLong("syncIntervalMs", 0L));
+        }
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void openInstance(PluginCall call) {
+        if (deferUntilReady(call, this::openInstance)) {
+            return;
+        }
+
+        String mmkvId = call.getString("mmkvId");
+
+        implementation
+            .openInstance(mmkvId)
+            .whenComplete((result, error) -> {
+                if (error != null) {
+                    Throwable cause = error.getCause() != null ? error.getCause() : error;
+                    call.reject("Error opening instance", cause instanceof Exception ? (Exception) cause : new Exception(cause));
+                } else {
+                    call.resolve();
+                }
+            });
+    }
+
+    @PluginMethod
+    public void closeInstance(PluginCall call) {
+        if (deferUntilReady(call, this::closeInstance)) {
+            return;
+        }
+
+        String mmkvId = call.getString("mmkvId");
+
+        if (mmkvId == null || mmkvId.isEmpty()) {
+            call.reject("mmkvId is required");
+            return;
+        }
+
+        JSObject ret = new JSObject();
+        ret.put("closed", implementation.closeInstance(mmkvId));
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void watchKeys(PluginCall call) {
+        if (deferUntilReady(call, this::watchKeys)) {
+            return;
+        }
+
+        JSObject ret = new JSObject();
+        ret.put("watchId", implementation.watchKeys(call.getString("mmkvId"), call.getString("namespace"), call.getString("keyPrefix")));
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void unwatchKeys(PluginCall call) {
+        if (deferUntilReady(call, this::unwatchKeys)) {
+            return;
+        }
+
+        Integer watchId = call.getInt("watchId");
+        if (watchId == null) {
+            call.reject("watchId is required");
+            return;
+        }
+
+        implementation.unwatchKeys(watchId);
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void sync(PluginCall call) {
+        if (deferUntilReady(call, this::sync)) {
+            return;
+        }
+
+        String mmkvId = call.getString("mmkvId");
+        if (mmkvId != null) {
+            implementation.sync(mmkvId);
+        } else {
+            implementation.syncAll();
+        }
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void trim(PluginCall call) {
+        if (deferUntilReady(call, this::trim)) {
+            return;
+        }
+
+        String mmkvId = call.getString("mmkvId");
+        long reclaimed = mmkvId != null ? implementation.trim(mmkvId) : implementation.trimAll();
+
+        JSObject ret = new JSObject();
+        ret.put("reclaimedBytes", reclaimed);
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void getTrimStats(PluginCall call) {
+        if (deferUntilReady(call, this::getTrimStats)) {
+            return;
+        }
+
+        MaintenanceScheduler.Stats stats = implementation.getMaintenanceStats();
+        JSObject ret = new JSObject();
+        ret.put("runs", stats.runs);
+        ret.put("trims", stats.trims);
+        ret.put("reclaimedBytes", stats.reclaimedBytes);
+        ret.put("lastRunMs", stats.lastRunNanos / 1e6);
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void getLogStats(PluginCall call) {
+        if (deferUntilReady(call, this::getLogStats)) {
+            return;
+        }
+
+        LogStats stats = implementation.getLogStats();
+        JSObject ret = new JSObject();
+        ret.put("delivered", stats.delivered);
+        ret.put("droppedOverflow", stats.droppedOverflow);
+        ret.put("droppedRateLimited", stats.droppedRateLimited);
+        ret.put("droppedSampled", stats.droppedSampled);
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void exportLogs(PluginCall call) {
+        if (deferUntilReady(call, this::exportLogs)) {
+            return;
+        }
+
+        if (fileLogSink == null) {
+            call.reject("File logging is not enabled");
+            return;
+        }
+
+        try {
+            JSArray files = new JSArray();
+            for (File file : fileLogSink.files()) {
+                JSObject entry = new JSObject();
+                entry.put("path", file.getAbsolutePath());
+                entry.put("size", file.length());
+                files.put(entry);
+            }
+            JSObject ret = new JSObject();
+            ret.put("files", files);
+            call.resolve(ret);
+        } catch (IOException e) {
+            call.reject("Failed to export logs: " + e.getMessage());
+        }
+    }
+
+    @PluginMethod
+    public void configureMetrics(PluginCall call) {
+        if (deferUntilReady(call, this::configureMetrics)) {
+            return;
+        }
+
+        Boolean enabled = call.getBoolean("enabled");
+        if (enabled == null) {
+            call.reject("enabled is required");
+            return;
+        }
+
+        implementation.configureMetrics(enabled, call.getLong("reportIntervalMs", 0L));
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void getMetrics(PluginCall call) {
+        if (deferUntilReady(call, this::getMetrics)) {
+            return;
+        }
+
+        MetricsSnapshot snapshot = implementation.getMetrics(call.getBoolean("reset", false));
+        if (snapshot == null) {
+            call.reject("Metrics are not enabled");
+            return;
+        }
+        call.resolve(toJSMetrics(snapshot));
+    }
+
+    @PluginMethod
+    public void setCallTiming(PluginCall call) {
+        if (deferUntilReady(call, this::setCallTiming)) {
+            return;
+        }
+
+        Boolean enabled = call.getBoolean("enabled");
+        if (enabled == null) {
+            call.reject("enabled is required");
+            return;
+        }
+
+        callTiming = enabled;
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void configureCache(PluginCall call) {
+        if (deferUntilReady(call, this::configureCache)) {
+            return;
+        }
+
+        Long maxBytes = call.getLong("maxBytes");
+
+        if (maxBytes == null) {
+            call.reject("maxBytes is required");
+            return;
+        }
+
+        implementation.configureReadCache(maxBytes);
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void getCacheStats(PluginCall call) {
+        if (deferUntilReady(call, this::getCacheStats)) {
+            return;
+        }
+
+        ReadCache.Stats stats = implementation.getReadCacheStats();
+        JSObject ret = new JSObject();
+        ret.put("enabled", stats != null);
+        if (stats != null) {
+            ret.put("hits", stats.hits);
+            ret.put("negativeHits", stats.negativeHits);
+            ret.put("misses", stats.misses);
+            ret.put("evictions", stats.evictions);
+            ret.put("invalidations", stats.invalidations);
+            ret.put("entries", stats.entries);
+            ret.put("bytes", stats.bytes);
+            ret.put("maxBytes", stats.maxBytes);
+        }
+        call.resolve(ret);
+    }
+
     @PluginMethod
     public void setLogLevel(PluginCall call) {
+        if (deferUntilReady(call, this::setLogLevel)) {
+            return;
+        }
+
         Integer level = call.getInt("level");
         
         if (level == null) {
@@ -326,9 +1317,221 @@ public class CapacitorMMKVPlugin extends Plugin {
 
     @PluginMethod
     public void getLogLevel(PluginCall call) {
+        if (deferUntilReady(call, this::getLogLevel)) {
+            return;
+        }
+
         int level = implementation.getLogLevel();
         JSObject ret = new JSObject();
         ret.put("level", level);
         call.resolve(ret);
     }
-}
\ No newline at end of file
+
+    private List<BatchEntry> parseBatchEntries(JSONArray array, String defaultMmkvId, String defaultNamespace, boolean withValues)
+        throws JSONException {
+        List<BatchEntry> entries = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            entries.add(parseBatchEntry(array.getJSONObject(i), defaultMmkvId, defaultNamespace, withValues));
+        }
+        return entries;
+    }
+
+    private BatchEntry parseBatchEntry(JSONObject object, String defaultMmkvId, String defaultNamespace, boolean withValues)
+        throws JSONException {
+        String key = optString(object, "key", null);
+        if (key == null) {
+            throw new IllegalArgumentException("Key is required");
+        }
+        String typeName = optString(object, "type", ValueType.STRING.getJsName());
+        ValueType type = ValueType.fromJsName(typeName);
+        if (type == null) {
+            throw new IllegalArgumentException("Unsupported type: " + typeName);
+        }
+        String mmkvId = optString(object, "mmkvId", defaultMmkvId);
+        String namespace = optString(object, "namespace", defaultNamespace);
+        String alias = optString(object, "alias", null);
+        Object value = withValues ? readTypedValue(object, "value", type) : null;
+        return new BatchEntry(key, type, value, mmkvId, namespace, alias);
+    }
+
+    private PipelineOperation parsePipelineOperation(JSONObject object, String defaultMmkvId, String defaultNamespace) {
+        String method = optString(object, "op", null);
+        if (method == null) {
+            return PipelineOperation.invalid("Operation name is required");
+        }
+        PipelineOperation.Kind kind = PipelineOperation.kindForMethod(method);
+        if (kind == null) {
+            return PipelineOperation.invalid("Unsupported operation: " + method);
+        }
+
+        String mmkvId = optString(object, "mmkvId", defaultMmkvId);
+        String namespace = optString(object, "namespace", defaultNamespace);
+        ValueType type = PipelineOperation.typeForMethod(method);
+        String key = null;
+        String[] keys = null;
+        Object value = null;
+        try {
+            switch (kind) {
+                case GET:
+                case SET:
+                case REMOVE:
+                case CONTAINS:
+                    key = optString(object, "key", null);
+                    if (key == null) {
+                        return PipelineOperation.invalid("Key is required");
+                    }
+                    if (kind == PipelineOperation.Kind.SET) {
+                        value = readTypedValue(object, "value", type);
+                    }
+                    break;
+                case REMOVE_MANY:
+                    JSONArray keyArray = object.optJSONArray("keys");
+                    if (keyArray == null) {
+                        return PipelineOperation.invalid("Keys array is required");
+                    }
+                    keys = new String[keyArray.length()];
+                    for (int i = 0; i < keys.length; i++) {
+                        keys[i] = keyArray.getString(i);
+                    }
+                    break;
+                case SET_LOG_LEVEL:
+                    if (!object.has("level") || object.isNull("level")) {
+                        return PipelineOperation.invalid("Log level is required");
+                    }
+                    value = object.getInt("level");
+                    break;
+                default:
+                    break;
+            }
+        } catch (IllegalArgumentException e) {
+            return PipelineOperation.invalid(e.getMessage());
+        } catch (JSONException e) {
+            return PipelineOperation.invalid("Invalid arguments for " + method + ": " + e.getMessage());
+        }
+        return new PipelineOperation(kind, type, key, keys, value, mmkvId, namespace);
+    }
+
+    private Object readTypedValue(JSONObject object, String name, ValueType type) throws JSONException {
+        if (!object.has(name) || object.isNull(name)) {
+            if (type == ValueType.STRING) {
+                return null;
+            }
+            throw new IllegalArgumentException("Value is required");
+        }
+        switch (type) {
+            case STRING:
+                return object.getString(name);
+            case INT:
+                return object.getInt(name);
+            case BOOL:
+                return object.getBoolean(name);
+            case FLOAT:
+                return (float) object.getDouble(name);
+            case BYTES:
+                return toByteArray(object.getJSONArray(name));
+            default:
+                throw new IllegalArgumentException("Unsupported type: " + type.getJsName());
+        }
+    }
+
+    // CallTiming.OFF unless per-call timing is on. JavaScript may stamp a call with sentAt (epoch
+    // milliseconds, fractional allowed) to have the time until it reached the plugin reported as queueWait.
+    private CallTiming startTiming(PluginCall call) {
+        if (!callTiming) {
+            return CallTiming.OFF;
+        }
+        Double sentAt = call.getDouble("sentAt");
+        long queueWaitNanos = sentAt != null ? Math.max(0, (long) ((System.currentTimeMillis() - sentAt) * 1e6)) : -1;
+        return CallTiming.start(queueWaitNanos);
+    }
+
+    // ret may be null for calls that resolve without a value; with timing on, the result gets a timing object
+    private void resolve(PluginCall call, JSObject ret, CallTiming timing) {
+        if (!timing.isOn()) {
+            if (ret != null) {
+                call.resolve(ret);
+            } else {
+                call.resolve();
+            }
+            return;
+        }
+        timing.serialized();
+        JSObject phases = new JSObject();
+        if (timing.queueWaitNanos >= 0) {
+            phases.put("queueWaitMs", timing.queueWaitNanos / 1e6);
+        }
+        phases.put("parseMs", timing.parseNanos / 1e6);
+        phases.put("resolveMs", timing.resolveNanos / 1e6);
+        phases.put("storageMs", timing.storageNanos / 1e6);
+        phases.put("serializeMs", timing.serializeNanos / 1e6);
+        JSObject result = ret != null ? ret : new JSObject();
+        result.put("timing", phases);
+        call.resolve(result);
+    }
+
+    private static JSObject toJSMetrics(MetricsSnapshot snapshot) {
+        JSObject instances = new JSObject();
+        for (Map.Entry<String, Map<String, OperationMetrics>> instance : snapshot.instances.entrySet()) {
+            instances.put(instance.getKey(), toJSOperations(instance.getValue()));
+        }
+        JSObject ret = new JSObject();
+        ret.put("startedAt", snapshot.startedAtMillis);
+        ret.put("operations", toJSOperations(snapshot.operations));
+        ret.put("instances", instances);
+        return ret;
+    }
+
+    private static JSObject toJSOperations(Map<String, OperationMetrics> operations) {
+        JSObject ret = new JSObject();
+        for (Map.Entry<String, OperationMetrics> entry : operations.entrySet()) {
+            OperationMetrics metrics = entry.getValue();
+            JSObject operation = new JSObject();
+            operation.put("count", metrics.count);
+            operation.put("bytesIn", metrics.bytesIn);
+            operation.put("bytesOut", metrics.bytesOut);
+            operation.put("p50Ms", metrics.p50Nanos / 1e6);
+            operation.put("p95Ms", metrics.p95Nanos / 1e6);
+            operation.put("p99Ms", metrics.p99Nanos / 1e6);
+            operation.put("maxMs", metrics.maxNanos / 1e6);
+            ret.put(entry.getKey(), operation);
+        }
+        return ret;
+    }
+
+    private static String optString(JSONObject object, String name, String fallback) {
+        // JSONObject.optString turns an explicit null into "null"
+        if (!object.has(name) || object.isNull(name)) {
+            return fallback;
+        }
+        return object.optString(name, fallback);
+    }
+
+    private static byte[] toByteArray(JSONArray array) throws JSONException {
+        byte[] bytes = new byte[array.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) array.getInt(i);
+        }
+        return bytes;
+    }
+
+    private static Object toJSValue(Object value) {
+        if (value == null) {
+            return JSONObject.NULL;
+        }
+        if (value instanceof byte[]) {
+            JSArray array = new JSArray();
+            for (byte b : (byte[]) value) {
+                array.put(b & 0xFF);
+            }
+            return array;
+        }
+        if (value instanceof String[]) {
+            JSArray array = new JSArray();
+            for (String item : (String[]) value) {
+                array.put(item);
+            }
+            return array;
+        }
+        return value;
+    }
+}
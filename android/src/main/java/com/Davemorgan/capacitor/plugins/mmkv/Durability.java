@@ -0,0 +1,32 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+// When an instance's changes are forced to disk (msync) rather than left to the OS
+public enum Durability {
+    // MMKV's default: the OS writes pages back on its own; also synced when the app is paused or stopped
+    ASYNC("async"),
+    // Synced after every write (after every flush for write-behind instances)
+    SYNC_ON_WRITE("syncOnWrite"),
+    // Synced every interval when something was written; also synced when the app is paused or stopped
+    PERIODIC("periodic"),
+    // Only synced by explicit sync calls
+    MANUAL("manual");
+
+    private final String jsName;
+
+    Durability(String jsName) {
+        this.jsName = jsName;
+    }
+
+    public String getJsName() {
+        return jsName;
+    }
+
+    public static Durability fromJsName(String name) {
+        for (Durability durability : values()) {
+            if (durability.jsName.equals(name)) {
+                return durability;
+            }
+        }
+        return null;
+    }
+}
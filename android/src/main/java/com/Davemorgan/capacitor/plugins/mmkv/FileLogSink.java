@@ -0,0 +1,162 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes log batches to files in directory, one line per entry: epoch milliseconds, a level letter,
+ * the instance id in brackets when there is one, and the message. Lines are encoded straight into a
+ * reusable buffer that is written through a FileChannel once per batch (or whenever it fills up), on
+ * the thread delivering the batch. When the current file reaches maxFileBytes it becomes mmkv.log.1,
+ * older files move up one number, and at most maxFiles files are kept.
+ */
+final class FileLogSink implements CapacitorMMKV.MMKVLogBatchListener {
+
+    static final long DEFAULT_MAX_FILE_BYTES = 1024 * 1024;
+    static final int DEFAULT_MAX_FILES = 3;
+
+    private static final String FILE_NAME = "mmkv.log";
+    private static final int BUFFER_BYTES = 16 * 1024;
+    private static final char[] LEVEL_LETTERS = { '-', 'E', 'W', 'I', 'D', 'V' };
+
+    private final File directory;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8
+        .newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final StringBuilder line = new StringBuilder(256);
+    private FileChannel channel;
+    private long size; // of the current file, including what is still buffered
+
+    FileLogSink(File directory, long maxFileBytes, int maxFiles) {
+        this.directory = directory;
+        this.maxFileBytes = Math.max(BUFFER_BYTES, maxFileBytes);
+        this.maxFiles = Math.max(1, maxFiles);
+    }
+
+    @Override
+    public synchronized void onLogs(List<LogEntry> entries, long dropped) {
+        try {
+            if (dropped > 0) {
+                append(System.currentTimeMillis(), CapacitorMMKV.LOG_LEVEL_WARN, null, dropped + " log entries dropped");
+            }
+            for (LogEntry entry : entries) {
+                append(entry.timestamp, entry.level, entry.mmkvId, entry.message);
+            }
+            flush();
+        } catch (IOException e) {
+            // Nowhere to report this without logging again; the batch is lost and the file reopened next time
+            buffer.clear();
+            closeChannel();
+        }
+    }
+
+    // The log files, oldest first, with everything delivered so far written out
+    synchronized List<File> files() throws IOException {
+        flush();
+        List<File> files = new ArrayList<>();
+        for (int i = maxFiles - 1; i >= 0; i--) {
+            File file = file(i);
+            if (file.isFile()) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private void append(long timestamp, int level, String mmkvId, String message) throws IOException {
+        line.setLength(0);
+        line.append(timestamp).append(' ').append(level >= 0 && level < LEVEL_LETTERS.length ? LEVEL_LETTERS[level] : '?').append(' ');
+        if (mmkvId != null) {
+            line.append('[').append(mmkvId).append("] ");
+        }
+        line.append(message).append('\n');
+
+        int start = buffer.position();
+        CharBuffer chars = CharBuffer.wrap(line);
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (!result.isOverflow()) {
+                break;
+            }
+            size += buffer.position() - start;
+            writeBuffer();
+            start = 0;
+        }
+        encoder.reset();
+        size += buffer.position() - start;
+        if (size >= maxFileBytes) {
+            writeBuffer();
+            rotate();
+        }
+    }
+
+    private void flush() throws IOException {
+        if (buffer.position() > 0) {
+            writeBuffer();
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        FileChannel target = channel();
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Unable to create log directory: " + directory);
+            }
+            channel = new FileOutputStream(file(0), true).getChannel();
+            size = channel.size() + buffer.position();
+        }
+        return channel;
+    }
+
+    private void rotate() {
+        closeChannel();
+        File oldest = file(maxFiles - 1);
+        if (oldest.exists()) {
+            oldest.delete();
+        }
+        for (int i = maxFiles - 2; i >= 0; i--) {
+            File file = file(i);
+            if (file.exists()) {
+                file.renameTo(file(i + 1));
+            }
+        }
+        size = 0;
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Nothing is left to write to it
+            }
+            channel = null;
+        }
+    }
+
+    private File file(int index) {
+        return new File(directory, index == 0 ? FILE_NAME : FILE_NAME + "." + index);
+    }
+}
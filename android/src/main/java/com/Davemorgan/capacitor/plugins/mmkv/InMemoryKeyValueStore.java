@@ -0,0 +1,157 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class InMemoryKeyValueStore implements KeyValueStore {
+
+    private final String id;
+    private final ConcurrentHashMap<String, Object> values = new ConcurrentHashMap<>();
+
+    public InMemoryKeyValueStore(String id) {
+        this.id = id;
+    }
+
+    @Override
+    public String id() {
+        return id;
+    }
+
+    @Override
+    public boolean encode(String key, String value) {
+        // Mirrors MMKV, where encoding a null string removes the key
+        if (value == null) {
+            values.remove(key);
+        } else {
+            values.put(key, value);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean encode(String key, int value) {
+        values.put(key, value);
+        return true;
+    }
+
+    @Override
+    public boolean encode(String key, boolean value) {
+        values.put(key, value);
+        return true;
+    }
+
+    @Override
+    public boolean encode(String key, float value) {
+        values.put(key, value);
+        return true;
+    }
+
+    @Override
+    public boolean encode(String key, byte[] value) {
+        if (value == null) {
+            values.remove(key);
+        } else {
+            values.put(key, value.clone());
+        }
+        return true;
+    }
+
+    @Override
+    public String decodeString(String key, String defaultValue) {
+        Object value = values.get(key);
+        return value instanceof String ? (String) value : defaultValue;
+    }
+
+    @Override
+    public int decodeInt(String key, int defaultValue) {
+        Object value = values.get(key);
+        return value instanceof Integer ? (Integer) value : defaultValue;
+    }
+
+    @Override
+    public boolean decodeBool(String key, boolean defaultValue) {
+        Object value = values.get(key);
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+
+    @Override
+    public float decodeFloat(String key, float defaultValue) {
+        Object value = values.get(key);
+        return value instanceof Float ? (Float) value : defaultValue;
+    }
+
+    @Override
+    public byte[] decodeBytes(String key, byte[] defaultValue) {
+        Object value = values.get(key);
+        return value instanceof byte[] ? ((byte[]) value).clone() : defaultValue;
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return values.containsKey(key);
+    }
+
+    @Override
+    public void removeValueForKey(String key) {
+        values.remove(key);
+    }
+
+    @Override
+    public void removeValuesForKeys(String[] keys) {
+        for (String key : keys) {
+            values.remove(key);
+        }
+    }
+
+    @Override
+    public String[] allKeys() {
+        return values.keySet().toArray(new String[0]);
+    }
+
+    @Override
+    public long count() {
+        return values.size();
+    }
+
+    @Override
+    public long totalSize() {
+        return actualSize();
+    }
+
+    @Override
+    public long actualSize() {
+        long size = 0;
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            size += entry.getKey().length() + sizeOf(entry.getValue());
+        }
+        return size;
+    }
+
+    private static long sizeOf(Object value) {
+        if (value instanceof String) {
+            return ((String) value).getBytes(StandardCharsets.UTF_8).length;
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        return value instanceof Boolean ? 1 : 4;
+    }
+
+    @Override
+    public void clearAll() {
+        values.clear();
+    }
+
+    @Override
+    public void trim() {}
+
+    @Override
+    public void clearMemoryCache() {}
+
+    @Override
+    public void sync() {}
+
+    @Override
+    public void close() {}
+}
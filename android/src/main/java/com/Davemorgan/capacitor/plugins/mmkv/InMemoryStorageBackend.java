@@ -0,0 +1,27 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+// Heap-only backend for running CapacitorMMKV on a plain JVM (unit tests, benchmarks); nothing is persisted
+public class InMemoryStorageBackend implements StorageBackend {
+
+    public static final String DEFAULT_ID = "mmkv.default";
+
+    private final ConcurrentHashMap<String, InMemoryKeyValueStore> stores = new ConcurrentHashMap<>();
+
+    @Override
+    public void initialize(CapacitorMMKV.MMKVLogListener logListener) {}
+
+    @Override
+    public KeyValueStore openDefault() {
+        return open(DEFAULT_ID);
+    }
+
+    @Override
+    public KeyValueStore open(String id) {
+        return stores.computeIfAbsent(id, InMemoryKeyValueStore::new);
+    }
+
+    @Override
+    public void setLogLevel(int level) {}
+}
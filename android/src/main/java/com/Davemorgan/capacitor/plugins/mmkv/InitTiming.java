@@ -0,0 +1,13 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+// Where initialize() spent its time: loading the storage engine, then mapping the default instance
+public class InitTiming {
+
+    public final long backendNanos;
+    public final long openDefaultNanos;
+
+    InitTiming(long backendNanos, long openDefaultNanos) {
+        this.backendNanos = backendNanos;
+        this.openDefaultNanos = openDefaultNanos;
+    }
+}
@@ -0,0 +1,340 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owns the open stores. Named instances are closed again when they have been idle for longer than the
+ * idle timeout, or, least recently used first, when the mappings of all open instances together exceed
+ * the byte budget. The default instance is never evicted. It also schedules the flushes of instances
+ * that use write-behind and the periodic syncs of instances in {@link Durability#PERIODIC} mode.
+ */
+final class InstanceManager implements ManagedKeyValueStore.Listener {
+
+    // How often the budget is rechecked when only a budget is configured; writes grow files between opens
+    private static final long BUDGET_CHECK_INTERVAL_MS = 5000;
+    private static final long MIN_SWEEP_INTERVAL_MS = 1000;
+    private static final int OPEN_THREADS = 2;
+    private static final long DEFAULT_FLUSH_INTERVAL_MS = 1000;
+    private static final int DEFAULT_MAX_PENDING_WRITES = 256;
+    private static final long OPEN_THREAD_KEEP_ALIVE_MS = 30000;
+
+    private final StorageBackend backend;
+    private final ConcurrentHashMap<String, ManagedKeyValueStore> stores = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CompletableFuture<KeyValueStore>> pendingOpens = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor openExecutor;
+    private volatile ManagedKeyValueStore defaultStore;
+    private volatile long idleTimeoutNanos;
+    private volatile long maxMappedBytes;
+    private ScheduledExecutorService sweeper;
+    private ScheduledFuture<?> sweep;
+    private volatile int maxPendingWrites = DEFAULT_MAX_PENDING_WRITES;
+    private long flushIntervalMs = DEFAULT_FLUSH_INTERVAL_MS;
+    private boolean writeBehindEnabled;
+    private ScheduledExecutorService flusher;
+    private ScheduledFuture<?> flush;
+    private final ConcurrentHashMap<String, ScheduledFuture<?>> periodicSyncs = new ConcurrentHashMap<>();
+
+    InstanceManager(StorageBackend backend) {
+        this.backend = backend;
+        this.openExecutor = new ThreadPoolExecutor(
+            OPEN_THREADS,
+            OPEN_THREADS,
+            OPEN_THREAD_KEEP_ALIVE_MS,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "CapacitorMMKV-open");
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        this.openExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    synchronized ManagedKeyValueStore openDefault() {
+        if (defaultStore == null) {
+            defaultStore = new ManagedKeyValueStore(CapacitorMMKV.DEFAULT_MMKV_ID, id -> backend.openDefault(), this);
+            defaultStore.ensureOpen();
+        }
+        return defaultStore;
+    }
+
+    ManagedKeyValueStore get(String mmkvId) {
+        ManagedKeyValueStore store = stores.get(mmkvId);
+        if (store == null) {
+            // Cheap to create; the file is only mapped on first use, outside the map's bin lock
+            store = stores.computeIfAbsent(mmkvId, id -> new ManagedKeyValueStore(id, backend::open, this));
+        }
+        return store;
+    }
+
+    // Maps mmkvId on a background thread. Concurrent calls for the same id share one future, and a
+    // synchronous access that arrives meanwhile waits for that open instead of starting another.
+    CompletableFuture<KeyValueStore> openAsync(String mmkvId) {
+        ManagedKeyValueStore store = get(mmkvId);
+        if (store.isOpen()) {
+            return CompletableFuture.completedFuture(store);
+        }
+        CompletableFuture<KeyValueStore> created = new CompletableFuture<>();
+        CompletableFuture<KeyValueStore> existing = pendingOpens.putIfAbsent(mmkvId, created);
+        if (existing != null) {
+            return existing;
+        }
+        openExecutor.execute(() -> {
+            try {
+                store.ensureOpen();
+                created.complete(store);
+            } catch (RuntimeException e) {
+                created.completeExceptionally(e);
+            } finally {
+                pendingOpens.remove(mmkvId, created);
+            }
+        });
+        return created;
+    }
+
+    // Pool used for opens, shared with other short background work such as prewarming
+    Executor executor() {
+        return openExecutor;
+    }
+
+    // Snapshot of the stores that currently have their file mapped, the default instance first
+    List<ManagedKeyValueStore> openStores() {
+        List<ManagedKeyValueStore> open = new ArrayList<>();
+        if (defaultStore != null && defaultStore.isOpen()) {
+            open.add(defaultStore);
+        }
+        for (ManagedKeyValueStore store : stores.values()) {
+            if (store.isOpen()) {
+                open.add(store);
+            }
+        }
+        return open;
+    }
+
+    // Closes a named instance now; it is reopened on its next use
+    boolean close(String mmkvId) {
+        ManagedKeyValueStore store = stores.get(mmkvId);
+        if (store == null || !store.isOpen()) {
+            return false;
+        }
+        store.close();
+        return true;
+    }
+
+    // 0 disables the respective limit
+    synchronized void configure(long idleTimeoutMs, long maxMappedBytes) {
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, idleTimeoutMs));
+        this.maxMappedBytes = Math.max(0, maxMappedBytes);
+
+        if (sweep != null) {
+            sweep.cancel(false);
+            sweep = null;
+        }
+        if (idleTimeoutMs <= 0 && maxMappedBytes <= 0) {
+            if (sweeper != null) {
+                sweeper.shutdown();
+                sweeper = null;
+            }
+            return;
+        }
+        if (sweeper == null) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "CapacitorMMKV-instances");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        long interval = idleTimeoutMs > 0 ? Math.max(MIN_SWEEP_INTERVAL_MS, idleTimeoutMs / 2) : BUDGET_CHECK_INTERVAL_MS;
+        sweep = sweeper.scheduleWithFixedDelay(this::sweep, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    void sweep() {
+        long idleTimeout = idleTimeoutNanos;
+        if (idleTimeout > 0) {
+            long now = System.nanoTime();
+            for (ManagedKeyValueStore store : stores.values()) {
+                if (store.isOpen() && now - store.lastAccess() > idleTimeout) {
+                    store.tryClose();
+                }
+            }
+        }
+        enforceBudget();
+    }
+
+    @Override
+    public void onOpened(ManagedKeyValueStore store) {
+        if (maxMappedBytes > 0 && store != defaultStore) {
+            enforceBudget();
+        }
+    }
+
+    @Override
+    public void onBuffered(ManagedKeyValueStore store, int pendingWrites) {
+        if (pendingWrites >= maxPendingWrites && store.markFlushScheduled()) {
+            flusher().execute(store::flush);
+        }
+    }
+
+    // Pending writes are flushed every intervalMs, and as soon as an instance has maxPendingWrites keys
+    // waiting
+    synchronized void configureWriteBehind(long intervalMs, int maxPendingWrites) {
+        this.flushIntervalMs = Math.max(0, intervalMs);
+        this.maxPendingWrites = Math.max(1, maxPendingWrites);
+        if (flush != null) {
+            flush.cancel(false);
+            flush = null;
+        }
+        scheduleFlush();
+    }
+
+    synchronized void setWriteBehind(ManagedKeyValueStore store, boolean enabled) {
+        store.setWriteBehind(enabled);
+        writeBehindEnabled = enabled || anyWriteBehind();
+        if (writeBehindEnabled) {
+            scheduleFlush();
+        } else if (flush != null) {
+            // The last store using write-behind just flushed its buffer, so the periodic flush has no work left
+            flush.cancel(false);
+            flush = null;
+        }
+    }
+
+    // Whether the periodic flush is running
+    synchronized boolean isFlushScheduled() {
+        return flush != null;
+    }
+
+    private boolean anyWriteBehind() {
+        for (ManagedKeyValueStore store : allStores()) {
+            if (store.isWriteBehind()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized void setDurability(ManagedKeyValueStore store, Durability durability, long syncIntervalMs) {
+        store.setDurability(durability, syncIntervalMs);
+        ScheduledFuture<?> previous = periodicSyncs.remove(store.id());
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        if (durability == Durability.PERIODIC && syncIntervalMs > 0) {
+            periodicSyncs.put(
+                store.id(),
+                flusher().scheduleWithFixedDelay(store::syncIfDirty, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS)
+            );
+        }
+    }
+
+    // Flushes write-behind buffers everywhere and msyncs what was written, except for instances in
+    // manual mode, which only sync when asked to
+    void syncOnLifecycle() {
+        for (ManagedKeyValueStore store : allStores()) {
+            if (store.durability() == Durability.MANUAL) {
+                store.flush();
+            } else {
+                store.syncIfDirty();
+            }
+        }
+    }
+
+    // syncOnLifecycle on the flush thread, behind any flush already running there
+    CompletableFuture<Void> syncOnLifecycleAsync() {
+        return CompletableFuture.runAsync(this::syncOnLifecycle, flusher());
+    }
+
+    void syncAll() {
+        for (ManagedKeyValueStore store : allStores()) {
+            store.syncIfDirty();
+        }
+    }
+
+    void flushAll() {
+        for (ManagedKeyValueStore store : allStores()) {
+            store.flush();
+        }
+    }
+
+    private List<ManagedKeyValueStore> allStores() {
+        List<ManagedKeyValueStore> all = new ArrayList<>(stores.size() + 1);
+        ManagedKeyValueStore defaultInstance = defaultStore;
+        if (defaultInstance != null) {
+            all.add(defaultInstance);
+        }
+        all.addAll(stores.values());
+        return all;
+    }
+
+    // The flush thread only exists once some instance uses write-behind
+    private void scheduleFlush() {
+        if (flush == null && writeBehindEnabled && flushIntervalMs > 0) {
+            flush = flusher().scheduleWithFixedDelay(this::flushAll, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized ScheduledExecutorService flusher() {
+        if (flusher == null) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "CapacitorMMKV-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return flusher;
+    }
+
+    private void enforceBudget() {
+        long budget = maxMappedBytes;
+        if (budget <= 0) {
+            return;
+        }
+        long total = defaultStore != null ? defaultStore.mappedBytes() : 0;
+        List<Candidate> open = new ArrayList<>();
+        for (ManagedKeyValueStore store : stores.values()) {
+            if (store.isOpen()) {
+                Candidate candidate = new Candidate(store, store.lastAccess(), store.mappedBytes());
+                open.add(candidate);
+                total += candidate.size;
+            }
+        }
+        if (total <= budget) {
+            return;
+        }
+        // Sorted on a snapshot, since access times keep changing while we look
+        open.sort((a, b) -> Long.compare(a.lastAccess, b.lastAccess));
+        for (Candidate candidate : open) {
+            if (total <= budget) {
+                break;
+            }
+            // Stores in use can't be closed; they are retried on the next check
+            if (candidate.store.tryClose()) {
+                total -= candidate.size;
+            }
+        }
+    }
+
+    private static final class Candidate {
+
+        final ManagedKeyValueStore store;
+        final long lastAccess;
+        final long size;
+
+        Candidate(ManagedKeyValueStore store, long lastAccess, long size) {
+            this.store = store;
+            this.lastAccess = lastAccess;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+// A key that was set or removed, or with key null, a cleared namespace (or whole instance when
+// namespace is null too). mmkvId is DEFAULT_MMKV_ID for the default instance.
+public class KeyChange {
+
+    public final String mmkvId;
+    public final String namespace;
+    public final String key;
+    public final boolean removed;
+    public final int[] watchIds; // the watches the change matched
+
+    KeyChange(String mmkvId, String namespace, String key, boolean removed, int[] watchIds) {
+        this.mmkvId = mmkvId;
+        this.namespace = namespace;
+        this.key = key;
+        this.removed = removed;
+        this.watchIds = watchIds;
+    }
+}
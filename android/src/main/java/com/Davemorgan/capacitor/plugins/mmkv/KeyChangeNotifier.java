@@ -0,0 +1,177 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects key changes for the watches registered by JavaScript and hands them to the listener in
+ * batches. The first change after a delivery opens a window (about one frame by default); changes made
+ * within it are coalesced, keeping only the latest per key, and a cleared instance or namespace drops
+ * what was pending for it. Changes no watch matches are discarded right away, and nothing is recorded
+ * while there are no watches.
+ */
+final class KeyChangeNotifier {
+
+    static final long DEFAULT_WINDOW_MS = 16;
+    // A window that collects this many distinct changes is delivered early
+    private static final int MAX_BATCH = 512;
+
+    private static final class Watch {
+
+        final int id;
+        final String mmkvId; // null matches every instance
+        final String namespace; // null matches every namespace
+        final String keyPrefix; // null matches every key
+
+        Watch(int id, String mmkvId, String namespace, String keyPrefix) {
+            this.id = id;
+            this.mmkvId = mmkvId;
+            this.namespace = namespace;
+            this.keyPrefix = keyPrefix;
+        }
+
+        // Clears match every watch on what they cleared, whatever its key prefix
+        boolean matches(String instance, String namespace, String key) {
+            if (mmkvId != null && !mmkvId.equals(instance)) {
+                return false;
+            }
+            if (this.namespace != null && namespace != null && !this.namespace.equals(namespace)) {
+                return false;
+            }
+            if (this.namespace != null && namespace == null && key != null) {
+                return false;
+            }
+            return keyPrefix == null || key == null || key.startsWith(keyPrefix);
+        }
+    }
+
+    private volatile Watch[] watches = new Watch[0]; // copy on write, guarded by this
+    private int nextWatchId = 1; // guarded by this
+    private volatile long windowMs = DEFAULT_WINDOW_MS;
+    private volatile CapacitorMMKV.KeyChangeListener listener;
+    private LinkedHashMap<String, KeyChange> pending = new LinkedHashMap<>(); // guarded by this
+    private boolean deliveryScheduled; // guarded by this
+    private ScheduledExecutorService executor; // guarded by this
+
+    void setListener(CapacitorMMKV.KeyChangeListener listener) {
+        this.listener = listener;
+    }
+
+    void setWindow(long windowMs) {
+        this.windowMs = Math.max(0, windowMs);
+    }
+
+    // instance is the resolved instance name (CapacitorMMKV.DEFAULT_MMKV_ID for the default instance)
+    synchronized int watch(String instance, String namespace, String keyPrefix) {
+        Watch watch = new Watch(nextWatchId++, instance, namespace, keyPrefix);
+        Watch[] updated = Arrays.copyOf(watches, watches.length + 1);
+        updated[watches.length] = watch;
+        watches = updated;
+        return watch.id;
+    }
+
+    synchronized boolean unwatch(int id) {
+        Watch[] current = watches;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].id == id) {
+                Watch[] updated = new Watch[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                watches = updated;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isWatched() {
+        return watches.length > 0;
+    }
+
+    // key null records a clear of the namespace, or of the whole instance when namespace is null too
+    void changed(String instance, String namespace, String key, boolean removed) {
+        Watch[] current = watches;
+        if (current.length == 0) {
+            return;
+        }
+        int[] matched = new int[current.length];
+        int count = 0;
+        for (Watch watch : current) {
+            if (watch.matches(instance, namespace, key)) {
+                matched[count++] = watch.id;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        KeyChange change = new KeyChange(
+            instance,
+            namespace,
+            key,
+            removed,
+            Arrays.copyOf(matched, count)
+        );
+
+        synchronized (this) {
+            if (key == null) {
+                dropPending(instance, namespace);
+            }
+            String id = instance + '\u0000' + (namespace == null ? "" : namespace) + '\u0000' + (key == null ? "" : key);
+            // Removed first so the entry moves to the end and the batch stays in order of last change
+            pending.remove(id);
+            pending.put(id, change);
+            if (pending.size() >= MAX_BATCH) {
+                deliveryScheduled = true;
+                executor().execute(this::deliver);
+            } else if (!deliveryScheduled) {
+                deliveryScheduled = true;
+                executor().schedule(this::deliver, windowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    // Caller holds the lock
+    private void dropPending(String instance, String namespace) {
+        Iterator<Map.Entry<String, KeyChange>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            KeyChange change = it.next().getValue();
+            if (change.mmkvId.equals(instance) && (namespace == null || namespace.equals(change.namespace))) {
+                it.remove();
+            }
+        }
+    }
+
+    private void deliver() {
+        List<KeyChange> batch;
+        synchronized (this) {
+            deliveryScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pending.values());
+            pending = new LinkedHashMap<>();
+        }
+        CapacitorMMKV.KeyChangeListener current = listener;
+        if (current != null) {
+            current.onKeyChanges(batch);
+        }
+    }
+
+    private ScheduledExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "CapacitorMMKV-events");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+}
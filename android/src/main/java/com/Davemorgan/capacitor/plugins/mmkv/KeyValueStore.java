@@ -0,0 +1,49 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+public interface KeyValueStore {
+    String id();
+
+    boolean encode(String key, String value);
+
+    boolean encode(String key, int value);
+
+    boolean encode(String key, boolean value);
+
+    boolean encode(String key, float value);
+
+    boolean encode(String key, byte[] value);
+
+    String decodeString(String key, String defaultValue);
+
+    int decodeInt(String key, int defaultValue);
+
+    boolean decodeBool(String key, boolean defaultValue);
+
+    float decodeFloat(String key, float defaultValue);
+
+    byte[] decodeBytes(String key, byte[] defaultValue);
+
+    boolean containsKey(String key);
+
+    void removeValueForKey(String key);
+
+    void removeValuesForKeys(String[] keys);
+
+    String[] allKeys();
+
+    long count();
+
+    long totalSize();
+
+    long actualSize();
+
+    void clearAll();
+
+    void trim();
+
+    void clearMemoryCache();
+
+    void sync();
+
+    void close();
+}
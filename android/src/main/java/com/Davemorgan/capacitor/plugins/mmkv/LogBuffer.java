@@ -0,0 +1,193 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Decouples the threads that log from the listener. Entries go into a bounded lock-free ring (a
+ * sequence number per slot, so producers only contend on one CAS and never block) and a single
+ * background thread hands them to the listener in batches of up to maxBatch, flushIntervalMs after the
+ * first entry of a batch arrived. Each level can be sampled and capped at a number of entries per
+ * second before it reaches the ring; entries that don't fit are dropped and counted rather than making
+ * the logging thread wait.
+ */
+final class LogBuffer {
+
+    static final int DEFAULT_CAPACITY = 1024;
+    static final long DEFAULT_FLUSH_INTERVAL_MS = 100;
+    static final int DEFAULT_MAX_BATCH = 128;
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static final class LevelLimit {
+
+        final int maxPerSecond; // 0 for no cap
+        final double sampleRate; // share of entries kept, 0..1
+        final AtomicLong second = new AtomicLong(-1);
+        final AtomicInteger count = new AtomicInteger();
+
+        LevelLimit(int maxPerSecond, double sampleRate) {
+            this.maxPerSecond = maxPerSecond;
+            this.sampleRate = sampleRate;
+        }
+    }
+
+    private final int mask;
+    private final AtomicReferenceArray<LogEntry> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong(); // next slot to claim
+    private long head; // next slot to drain; only touched by the drain thread
+    private final long flushIntervalMs;
+    private final int maxBatch;
+    private final CapacitorMMKV.MMKVLogBatchListener listener;
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService executor;
+    // Indexed by level; copy on write
+    private volatile LevelLimit[] limits = new LevelLimit[CapacitorMMKV.LOG_LEVEL_VERBOSE + 1];
+
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong droppedOverflow = new AtomicLong();
+    private final AtomicLong droppedRateLimited = new AtomicLong();
+    private final AtomicLong droppedSampled = new AtomicLong();
+    private final AtomicLong unreportedDrops = new AtomicLong();
+
+    // capacity is rounded up to a power of two
+    LogBuffer(int capacity, long flushIntervalMs, int maxBatch, CapacitorMMKV.MMKVLogBatchListener listener) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.flushIntervalMs = Math.max(0, flushIntervalMs);
+        this.maxBatch = Math.max(1, maxBatch);
+        this.listener = listener;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "CapacitorMMKV-log");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    // maxPerSecond 0 removes the cap, sampleRate 1 keeps every entry
+    synchronized void setLevelLimit(int level, int maxPerSecond, double sampleRate) {
+        LevelLimit[] updated = limits.clone();
+        boolean unlimited = maxPerSecond <= 0 && sampleRate >= 1;
+        updated[level] = unlimited ? null : new LevelLimit(Math.max(0, maxPerSecond), Math.max(0, sampleRate));
+        limits = updated;
+    }
+
+    // Never blocks; returns false when the entry was dropped
+    boolean offer(int level, String message, String mmkvId) {
+        LevelLimit limit = level >= 0 && level < limits.length ? limits[level] : null;
+        if (limit != null && !admit(limit)) {
+            return false;
+        }
+        LogEntry entry = new LogEntry(level, message, mmkvId, System.currentTimeMillis());
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long available = sequences.get(index) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, entry);
+                    // Publishes the slot to the drain thread
+                    sequences.set(index, position + 1);
+                    break;
+                }
+            } else if (available < 0) {
+                droppedOverflow.incrementAndGet();
+                unreportedDrops.incrementAndGet();
+                scheduleDrain();
+                return false;
+            }
+        }
+        scheduleDrain();
+        return true;
+    }
+
+    private boolean admit(LevelLimit limit) {
+        if (limit.sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= limit.sampleRate) {
+            droppedSampled.incrementAndGet();
+            unreportedDrops.incrementAndGet();
+            return false;
+        }
+        if (limit.maxPerSecond > 0) {
+            long second = System.nanoTime() / NANOS_PER_SECOND;
+            long current = limit.second.get();
+            if (current != second && limit.second.compareAndSet(current, second)) {
+                limit.count.set(0);
+            }
+            if (limit.count.incrementAndGet() > limit.maxPerSecond) {
+                droppedRateLimited.incrementAndGet();
+                unreportedDrops.incrementAndGet();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void scheduleDrain() {
+        if (!drainScheduled.get() && drainScheduled.compareAndSet(false, true)) {
+            try {
+                executor.schedule(this::drain, flushIntervalMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Closed: a logging thread still held this buffer after it was replaced
+            }
+        }
+    }
+
+    private void drain() {
+        drainScheduled.set(false);
+        List<LogEntry> batch = new ArrayList<>(maxBatch);
+        while (true) {
+            LogEntry entry = poll();
+            if (entry != null) {
+                batch.add(entry);
+            }
+            if (batch.size() == maxBatch || (entry == null && !batch.isEmpty())) {
+                delivered.addAndGet(batch.size());
+                listener.onLogs(batch, unreportedDrops.getAndSet(0));
+                batch = new ArrayList<>(maxBatch);
+            }
+            if (entry == null) {
+                return;
+            }
+        }
+    }
+
+    private LogEntry poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        LogEntry entry = slots.get(index);
+        slots.set(index, null);
+        // Hands the slot back to producers for the next lap
+        sequences.set(index, head + mask + 1);
+        head++;
+        return entry;
+    }
+
+    // Delivers what is still buffered, then lets the thread go
+    void close() {
+        executor.execute(this::drain);
+        executor.shutdown();
+    }
+
+    LogStats stats() {
+        return new LogStats(delivered.get(), droppedOverflow.get(), droppedRateLimited.get(), droppedSampled.get());
+    }
+}
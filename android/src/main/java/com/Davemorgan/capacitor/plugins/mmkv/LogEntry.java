@@ -0,0 +1,16 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+public class LogEntry {
+
+    public final int level;
+    public final String message;
+    public final String mmkvId;
+    public final long timestamp;
+
+    LogEntry(int level, String message, String mmkvId, long timestamp) {
+        this.level = level;
+        this.message = message;
+        this.mmkvId = mmkvId;
+        this.timestamp = timestamp;
+    }
+}
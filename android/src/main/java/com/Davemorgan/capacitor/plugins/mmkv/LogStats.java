@@ -0,0 +1,16 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+public class LogStats {
+
+    public final long delivered;
+    public final long droppedOverflow;
+    public final long droppedRateLimited;
+    public final long droppedSampled;
+
+    LogStats(long delivered, long droppedOverflow, long droppedRateLimited, long droppedSampled) {
+        this.delivered = delivered;
+        this.droppedOverflow = droppedOverflow;
+        this.droppedRateLimited = droppedRateLimited;
+        this.droppedSampled = droppedSampled;
+    }
+}
@@ -0,0 +1,128 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import com.tencent.mmkv.MMKV;
+
+public class MMKVKeyValueStore implements KeyValueStore {
+
+    private final MMKV mmkv;
+
+    public MMKVKeyValueStore(MMKV mmkv) {
+        this.mmkv = mmkv;
+    }
+
+    @Override
+    public String id() {
+        return mmkv.mmapID();
+    }
+
+    @Override
+    public boolean encode(String key, String value) {
+        return mmkv.encode(key, value);
+    }
+
+    @Override
+    public boolean encode(String key, int value) {
+        return mmkv.encode(key, value);
+    }
+
+    @Override
+    public boolean encode(String key, boolean value) {
+        return mmkv.encode(key, value);
+    }
+
+    @Override
+    public boolean encode(String key, float value) {
+        return mmkv.encode(key, value);
+    }
+
+    @Override
+    public boolean encode(String key, byte[] value) {
+        return mmkv.encode(key, value);
+    }
+
+    @Override
+    public String decodeString(String key, String defaultValue) {
+        return mmkv.decodeString(key, defaultValue);
+    }
+
+    @Override
+    public int decodeInt(String key, int defaultValue) {
+        return mmkv.decodeInt(key, defaultValue);
+    }
+
+    @Override
+    public boolean decodeBool(String key, boolean defaultValue) {
+        return mmkv.decodeBool(key, defaultValue);
+    }
+
+    @Override
+    public float decodeFloat(String key, float defaultValue) {
+        return mmkv.decodeFloat(key, defaultValue);
+    }
+
+    @Override
+    public byte[] decodeBytes(String key, byte[] defaultValue) {
+        return mmkv.decodeBytes(key, defaultValue);
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return mmkv.containsKey(key);
+    }
+
+    @Override
+    public void removeValueForKey(String key) {
+        mmkv.removeValueForKey(key);
+    }
+
+    @Override
+    public void removeValuesForKeys(String[] keys) {
+        mmkv.removeValuesForKeys(keys);
+    }
+
+    @Override
+    public String[] allKeys() {
+        String[] keys = mmkv.allKeys();
+        return keys != null ? keys : new String[0];
+    }
+
+    @Override
+    public long count() {
+        return mmkv.count();
+    }
+
+    @Override
+    public long totalSize() {
+        return mmkv.totalSize();
+    }
+
+    @Override
+    public long actualSize() {
+        return mmkv.actualSize();
+    }
+
+    @Override
+    public void clearAll() {
+        mmkv.clearAll();
+    }
+
+    @Override
+    public void trim() {
+        mmkv.trim();
+    }
+
+    @Override
+    public void clearMemoryCache() {
+        mmkv.clearMemoryCache();
+    }
+
+    @Override
+    public void sync() {
+        mmkv.sync();
+    }
+
+    @Override
+    public void close() {
+        mmkv.close();
+    }
+}
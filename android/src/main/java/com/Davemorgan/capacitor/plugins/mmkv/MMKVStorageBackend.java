@@ -0,0 +1,108 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import android.content.Context;
+import com.tencent.mmkv.MMKV;
+import com.tencent.mmkv.MMKVHandler;
+import com.tencent.mmkv.MMKVLogLevel;
+import com.tencent.mmkv.MMKVRecoverStrategic;
+
+public class MMKVStorageBackend implements StorageBackend {
+
+    private final Context context;
+    private final String rootDir;
+    private MMKVHandler handler;
+    // Whether native log lines are redirected to us at all; off at LOG_LEVEL_NONE so they never cross JNI
+    private volatile boolean redirectLogs;
+
+    public MMKVStorageBackend(Context context) {
+        this(context, null);
+    }
+
+    // rootDir may be null to use MMKV's default, <filesDir>/mmkv
+    public MMKVStorageBackend(Context context, String rootDir) {
+        this.context = context;
+        this.rootDir = rootDir;
+    }
+
+    @Override
+    public void initialize(CapacitorMMKV.MMKVLogListener logListener) {
+        if (rootDir != null) {
+            MMKV.initialize(context, rootDir);
+        } else {
+            MMKV.initialize(context);
+        }
+        handler = new MMKVHandler() {
+            @Override
+            public MMKVRecoverStrategic onMMKVCRCCheckFail(String mmapID) {
+                logListener.onLog(CapacitorMMKV.LOG_LEVEL_ERROR, "CRC check failed for: " + mmapID, mmapID);
+                return MMKVRecoverStrategic.OnErrorRecover;
+            }
+
+            @Override
+            public MMKVRecoverStrategic onMMKVFileLengthError(String mmapID) {
+                logListener.onLog(CapacitorMMKV.LOG_LEVEL_ERROR, "File length error for: " + mmapID, mmapID);
+                return MMKVRecoverStrategic.OnErrorRecover;
+            }
+
+            @Override
+            public boolean wantLogRedirecting() {
+                return redirectLogs;
+            }
+
+            @Override
+            public void mmkvLog(MMKVLogLevel level, String file, int line, String funcname, String message) {
+                logListener.onLog(convertFromMMKVLogLevel(level), message, null);
+            }
+        };
+        MMKV.registerHandler(handler);
+
+        MMKV.setLogLevel(MMKVLogLevel.LevelNone);
+    }
+
+    @Override
+    public KeyValueStore openDefault() {
+        return new MMKVKeyValueStore(MMKV.defaultMMKV());
+    }
+
+    @Override
+    public KeyValueStore open(String id) {
+        return new MMKVKeyValueStore(MMKV.mmkvWithID(id));
+    }
+
+    @Override
+    public void setLogLevel(int level) {
+        boolean redirect = level != CapacitorMMKV.LOG_LEVEL_NONE;
+        if (redirect && !redirectLogs) {
+            redirectLogs = true;
+            // MMKV only asks wantLogRedirecting() when a handler is registered
+            MMKV.registerHandler(handler);
+        }
+        MMKV.setLogLevel(convertToMMKVLogLevel(level));
+        if (!redirect && redirectLogs) {
+            redirectLogs = false;
+            MMKV.registerHandler(handler);
+        }
+    }
+
+    private static MMKVLogLevel convertToMMKVLogLevel(int level) {
+        switch (level) {
+            case 0: return MMKVLogLevel.LevelNone;
+            case 1: return MMKVLogLevel.LevelError;
+            case 2: return MMKVLogLevel.LevelWarning;
+            case 3: return MMKVLogLevel.LevelInfo;
+            case 4: return MMKVLogLevel.LevelDebug;
+            case 5: return MMKVLogLevel.LevelDebug;
+            default: return MMKVLogLevel.LevelNone;
+        }
+    }
+
+    private static int convertFromMMKVLogLevel(MMKVLogLevel level) {
+        switch (level) {
+            case LevelError: return CapacitorMMKV.LOG_LEVEL_ERROR;
+            case LevelWarning: return CapacitorMMKV.LOG_LEVEL_WARN;
+            case LevelInfo: return CapacitorMMKV.LOG_LEVEL_INFO;
+            case LevelDebug: return CapacitorMMKV.LOG_LEVEL_DEBUG;
+            default: return CapacitorMMKV.LOG_LEVEL_NONE;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gives back file space that removals left behind. MMKV files only grow until MMKV itself decides to
+ * rewrite them, so every interval the open instances are checked for the share of their file that is
+ * unused (totalSize vs actualSize) and trimmed when it exceeds the threshold. Only instances that have
+ * been idle for a while are touched, unless the app is in the background, and each run stops once its
+ * time budget is spent.
+ */
+final class MaintenanceScheduler {
+
+    static final class Stats {
+
+        final long runs;
+        final long trims;
+        final long reclaimedBytes;
+        final long lastRunNanos;
+
+        Stats(long runs, long trims, long reclaimedBytes, long lastRunNanos) {
+            this.runs = runs;
+            this.trims = trims;
+            this.reclaimedBytes = reclaimedBytes;
+            this.lastRunNanos = lastRunNanos;
+        }
+    }
+
+    private final InstanceManager instances;
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> scheduled;
+    private volatile double minFragmentation;
+    private volatile long idleNanos;
+    private volatile long budgetNanos;
+    private volatile boolean background;
+
+    // guarded by this
+    private long runs;
+    private long trims;
+    private long reclaimedBytes;
+    private long lastRunNanos;
+
+    MaintenanceScheduler(InstanceManager instances) {
+        this.instances = instances;
+    }
+
+    // intervalMs 0 stops scheduled runs; explicit trims keep working
+    synchronized void configure(long intervalMs, double minFragmentation, long idleMs, long budgetMs) {
+        this.minFragmentation = minFragmentation;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMs);
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMs);
+
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        if (intervalMs <= 0) {
+            return;
+        }
+        scheduled = executor().scheduleWithFixedDelay(this::run, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Going to the background is the cheapest moment to compact, so that also triggers a run
+    synchronized void setBackground(boolean background) {
+        this.background = background;
+        if (background && scheduled != null) {
+            executor().execute(this::run);
+        }
+    }
+
+    // Trims one store regardless of idleness and threshold; returns the bytes reclaimed
+    long trim(ManagedKeyValueStore store) {
+        long reclaimed = store.trimIfFragmented(0, true);
+        record(reclaimed > 0 ? 1 : 0, reclaimed, -1);
+        return reclaimed;
+    }
+
+    void run() {
+        long start = System.nanoTime();
+        long deadline = start + budgetNanos;
+        boolean inBackground = background;
+        int trimmed = 0;
+        long reclaimed = 0;
+        for (ManagedKeyValueStore store : instances.openStores()) {
+            long now = System.nanoTime();
+            if (now - deadline > 0) {
+                break;
+            }
+            if (!inBackground && now - store.lastAccess() < idleNanos) {
+                continue;
+            }
+            long bytes = store.trimIfFragmented(minFragmentation, false);
+            if (bytes > 0) {
+                trimmed++;
+                reclaimed += bytes;
+            }
+        }
+        record(trimmed, reclaimed, System.nanoTime() - start);
+    }
+
+    synchronized Stats stats() {
+        return new Stats(runs, trims, reclaimedBytes, lastRunNanos);
+    }
+
+    // runNanos is -1 for explicit trims, which don't count as runs
+    private synchronized void record(int trimmed, long reclaimed, long runNanos) {
+        if (runNanos >= 0) {
+            runs++;
+            lastRunNanos = runNanos;
+        }
+        trims += trimmed;
+        reclaimedBytes += reclaimed;
+    }
+
+    private ScheduledExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "CapacitorMMKV-maintenance");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        }
+        return executor;
+    }
+}
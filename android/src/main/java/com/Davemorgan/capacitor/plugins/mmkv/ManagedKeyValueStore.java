@@ -0,0 +1,620 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Store handed out by {@link InstanceManager}. The underlying store is opened on first use and can be
+ * closed to give back its mapping and file descriptor; the next access reopens it, so references held
+ * elsewhere (handles, namespace instances) never go stale. Operations share a read lock, closing takes
+ * the write lock so a store is never closed under a running operation.
+ *
+ * With write-behind enabled, writes and removals only land in a per-key buffer holding the latest value
+ * for each key, and reads check that buffer first. The buffer is written to the store by flush(), and
+ * before any operation that looks at the store as a whole (keys, counts, sizes, sync, close).
+ *
+ * The store also tracks whether it was written since its last msync, which its {@link Durability}
+ * mode uses to decide when to sync.
+ */
+final class ManagedKeyValueStore implements KeyValueStore {
+
+    interface Opener {
+        KeyValueStore open(String id);
+    }
+
+    interface Listener {
+        void onOpened(ManagedKeyValueStore store);
+
+        void onBuffered(ManagedKeyValueStore store, int pendingWrites);
+    }
+
+    // Buffered removal
+    private static final Object REMOVED = new Object();
+    // Returned by buffered() when the buffer has nothing for the key
+    private static final Object NOT_BUFFERED = new Object();
+
+    private final String id;
+    private final Opener opener;
+    private final Listener listener;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private KeyValueStore delegate; // guarded by lock
+    private volatile boolean open;
+    private volatile long lastAccess;
+    private volatile long mappedBytes;
+    private volatile ConcurrentHashMap<String, Object> pending; // null unless write-behind is on
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private volatile Durability durability = Durability.ASYNC;
+    private volatile long syncIntervalMs;
+    private volatile boolean dirty; // written since the last sync
+
+    ManagedKeyValueStore(String id, Opener opener, Listener listener) {
+        this.id = id;
+        this.opener = opener;
+        this.listener = listener;
+    }
+
+    boolean isOpen() {
+        return open;
+    }
+
+    long lastAccess() {
+        return lastAccess;
+    }
+
+    // Size of the mapping as of the last check; refreshed here unless the store is busy
+    long mappedBytes() {
+        if (!open || !lock.readLock().tryLock()) {
+            return open ? mappedBytes : 0;
+        }
+        try {
+            if (delegate != null) {
+                mappedBytes = delegate.totalSize();
+            }
+            return delegate != null ? mappedBytes : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Maps the file now instead of on first use
+    void ensureOpen() {
+        acquire();
+        lock.readLock().unlock();
+    }
+
+    // Closes the store unless an operation is running on it or writes are pending; returns whether it was closed
+    boolean tryClose() {
+        if (hasPendingWrites() || !lock.writeLock().tryLock()) {
+            return false;
+        }
+        try {
+            return closeDelegate();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Trims the store when at least minFragmentation of its file is unused and returns the bytes given
+    // back. Unless wait is set, a store that is being opened or closed is skipped. Doesn't count as an
+    // access, so maintenance never keeps an instance from being evicted.
+    long trimIfFragmented(double minFragmentation, boolean wait) {
+        if (!open) {
+            return 0;
+        }
+        if (wait) {
+            lock.readLock().lock();
+        } else if (!lock.readLock().tryLock()) {
+            return 0;
+        }
+        try {
+            if (delegate == null) {
+                return 0;
+            }
+            long total = delegate.totalSize();
+            long actual = delegate.actualSize();
+            if (total <= 0 || (double) (total - actual) / total < minFragmentation) {
+                return 0;
+            }
+            delegate.trim();
+            delegate.clearMemoryCache();
+            mappedBytes = delegate.totalSize();
+            return Math.max(0, total - mappedBytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    synchronized void setWriteBehind(boolean enabled) {
+        if (enabled) {
+            if (pending == null) {
+                pending = new ConcurrentHashMap<>();
+            }
+            return;
+        }
+        ConcurrentHashMap<String, Object> buffer = pending;
+        pending = null;
+        if (buffer != null) {
+            flushBuffer(buffer);
+        }
+    }
+
+    boolean isWriteBehind() {
+        return pending != null;
+    }
+
+    void setDurability(Durability durability, long syncIntervalMs) {
+        this.durability = durability;
+        this.syncIntervalMs = syncIntervalMs;
+    }
+
+    Durability durability() {
+        return durability;
+    }
+
+    long syncIntervalMs() {
+        return syncIntervalMs;
+    }
+
+    // Flushes buffered writes and msyncs if anything was written since the last sync. A closed store has
+    // nothing left to sync and isn't reopened for it.
+    void syncIfDirty() {
+        flush();
+        if (!dirty || !open) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            if (delegate != null && dirty) {
+                dirty = false;
+                delegate.sync();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void afterStoreWrite(KeyValueStore store) {
+        dirty = true;
+        if (durability == Durability.SYNC_ON_WRITE) {
+            dirty = false;
+            store.sync();
+        }
+    }
+
+    boolean hasPendingWrites() {
+        ConcurrentHashMap<String, Object> buffer = pending;
+        return buffer != null && !buffer.isEmpty();
+    }
+
+    // Lets a size-triggered flush be queued only once until it has run
+    boolean markFlushScheduled() {
+        return flushScheduled.compareAndSet(false, true);
+    }
+
+    void flush() {
+        flushScheduled.set(false);
+        ConcurrentHashMap<String, Object> buffer = pending;
+        if (buffer != null) {
+            flushBuffer(buffer);
+        }
+    }
+
+    private boolean buffer(String key, Object value) {
+        ConcurrentHashMap<String, Object> buffer = pending;
+        if (buffer == null) {
+            return false;
+        }
+        lastAccess = System.nanoTime();
+        buffer.put(key, value);
+        if (pending != buffer) {
+            // Write-behind was switched off meanwhile; don't leave the write in the retired buffer
+            flushBuffer(buffer);
+        } else if (listener != null) {
+            listener.onBuffered(this, buffer.size());
+        }
+        return true;
+    }
+
+    // The pending value or REMOVED, or NOT_BUFFERED to read from the store
+    private Object buffered(String key, Class<?> kind) {
+        ConcurrentHashMap<String, Object> buffer = pending;
+        if (buffer == null || buffer.isEmpty()) {
+            return NOT_BUFFERED;
+        }
+        Object value = buffer.get(key);
+        if (value == null) {
+            return NOT_BUFFERED;
+        }
+        if (value == REMOVED || kind.isInstance(value)) {
+            return value;
+        }
+        // Pending value of another type: let the store decide what this read sees
+        flushBuffer(buffer);
+        return NOT_BUFFERED;
+    }
+
+    private void flushBuffer(ConcurrentHashMap<String, Object> buffer) {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        synchronized (flushLock) {
+            KeyValueStore store = acquire();
+            try {
+                for (Map.Entry<String, Object> entry : buffer.entrySet()) {
+                    apply(store, entry.getKey(), entry.getValue());
+                    // Keeps a newer value that arrived while this one was written
+                    buffer.remove(entry.getKey(), entry.getValue());
+                }
+                dirty = true;
+                if (durability == Durability.SYNC_ON_WRITE) {
+                    dirty = false;
+                    store.sync();
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    private static void apply(KeyValueStore store, String key, Object value) {
+        if (value == REMOVED) {
+            store.removeValueForKey(key);
+        } else if (value instanceof String) {
+            store.encode(key, (String) value);
+        } else if (value instanceof Integer) {
+            store.encode(key, (int) (Integer) value);
+        } else if (value instanceof Boolean) {
+            store.encode(key, (boolean) (Boolean) value);
+        } else if (value instanceof Float) {
+            store.encode(key, (float) (Float) value);
+        } else {
+            store.encode(key, (byte[]) value);
+        }
+    }
+
+    // Returns with the read lock held; callers release it in a finally block
+    private KeyValueStore acquire() {
+        lastAccess = System.nanoTime();
+        lock.readLock().lock();
+        if (delegate != null) {
+            return delegate;
+        }
+        lock.readLock().unlock();
+
+        boolean opened = false;
+        lock.writeLock().lock();
+        try {
+            if (delegate == null) {
+                delegate = opener.open(id);
+                mappedBytes = delegate.totalSize();
+                open = true;
+                opened = true;
+            }
+            // Downgrade so the store can't be closed before the caller is done with it
+            lock.readLock().lock();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (opened && listener != null) {
+            listener.onOpened(this);
+        }
+        return delegate;
+    }
+
+    private boolean closeDelegate() {
+        if (delegate == null) {
+            return false;
+        }
+        delegate.close();
+        delegate = null;
+        open = false;
+        mappedBytes = 0;
+        return true;
+    }
+
+    @Override
+    public String id() {
+        return id;
+    }
+
+    @Override
+    public boolean encode(String key, String value) {
+        if (buffer(key, value == null ? REMOVED : value)) {
+            return true;
+        }
+        KeyValueStore store = acquire();
+        try {
+            boolean written = store.encode(key, value);
+            afterStoreWrite(store);
+            return written;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean encode(String key, int value) {
+        if (buffer(key, value)) {
+            return true;
+        }
+        KeyValueStore store = acquire();
+        try {
+            boolean written = store.encode(key, value);
+            afterStoreWrite(store);
+            return written;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean encode(String key, boolean value) {
+        if (buffer(key, value)) {
+            return true;
+        }
+        KeyValueStore store = acquire();
+        try {
+            boolean written = store.encode(key, value);
+            afterStoreWrite(store);
+            return written;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean encode(String key, float value) {
+        if (buffer(key, value)) {
+            return true;
+        }
+        KeyValueStore store = acquire();
+        try {
+            boolean written = store.encode(key, value);
+            afterStoreWrite(store);
+            return written;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean encode(String key, byte[] value) {
+        if (buffer(key, value == null ? REMOVED : value)) {
+            return true;
+        }
+        KeyValueStore store = acquire();
+        try {
+            boolean written = store.encode(key, value);
+            afterStoreWrite(store);
+            return written;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String decodeString(String key, String defaultValue) {
+        Object buffered = buffered(key, String.class);
+        if (buffered != NOT_BUFFERED) {
+            return buffered == REMOVED ? defaultValue : (String) buffered;
+        }
+        KeyValueStore store = acquire();
+        try {
+            return store.decodeString(key, defaultValue);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int decodeInt(String key, int defaultValue) {
+        Object buffered = buffered(key, Integer.class);
+        if (buffered != NOT_BUFFERED) {
+            return buffered == REMOVED ? defaultValue : (Integer) buffered;
+        }
+        KeyValueStore store = acquire();
+        try {
+            return store.decodeInt(key, defaultValue);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean decodeBool(String key, boolean defaultValue) {
+        Object buffered = buffered(key, Boolean.class);
+        if (buffered != NOT_BUFFERED) {
+            return buffered == REMOVED ? defaultValue : (Boolean) buffered;
+        }
+        KeyValueStore store = acquire();
+        try {
+            return store.decodeBool(key, defaultValue);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public float decodeFloat(String key, float defaultValue) {
+        Object buffered = buffered(key, Float.class);
+        if (buffered != NOT_BUFFERED) {
+            return buffered == REMOVED ? defaultValue : (Float) buffered;
+        }
+        KeyValueStore store = acquire();
+        try {
+            return store.decodeFloat(key, defaultValue);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public byte[] decodeBytes(String key, byte[] defaultValue) {
+        Object buffered = buffered(key, byte[].class);
+        if (buffered != NOT_BUFFERED) {
+            return buffered == REMOVED ? defaultValue : (byte[]) buffered;
+        }
+        KeyValueStore store = acquire();
+        try {
+            return store.decodeBytes(key, defaultValue);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        Object buffered = buffered(key, Object.class);
+        if (buffered != NOT_BUFFERED) {
+            return buffered != REMOVED;
+        }
+        KeyValueStore store = acquire();
+        try {
+            return store.containsKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeValueForKey(String key) {
+        if (buffer(key, REMOVED)) {
+            return;
+        }
+        KeyValueStore store = acquire();
+        try {
+            store.removeValueForKey(key);
+            afterStoreWrite(store);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeValuesForKeys(String[] keys) {
+        if (pending != null) {
+            for (String key : keys) {
+                buffer(key, REMOVED);
+            }
+            return;
+        }
+        KeyValueStore store = acquire();
+        try {
+            store.removeValuesForKeys(keys);
+            afterStoreWrite(store);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String[] allKeys() {
+        flush();
+        KeyValueStore store = acquire();
+        try {
+            return store.allKeys();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long count() {
+        flush();
+        KeyValueStore store = acquire();
+        try {
+            return store.count();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long totalSize() {
+        flush();
+        KeyValueStore store = acquire();
+        try {
+            return store.totalSize();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long actualSize() {
+        flush();
+        KeyValueStore store = acquire();
+        try {
+            return store.actualSize();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void clearAll() {
+        // Under flushLock, so a flush that already took entries from the buffer can't write them back
+        // after the clear
+        synchronized (flushLock) {
+            ConcurrentHashMap<String, Object> buffer = pending;
+            if (buffer != null) {
+                buffer.clear();
+            }
+            KeyValueStore store = acquire();
+            try {
+                store.clearAll();
+                afterStoreWrite(store);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public void trim() {
+        flush();
+        KeyValueStore store = acquire();
+        try {
+            store.trim();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void clearMemoryCache() {
+        flush();
+        KeyValueStore store = acquire();
+        try {
+            store.clearMemoryCache();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void sync() {
+        flush();
+        KeyValueStore store = acquire();
+        try {
+            dirty = false;
+            store.sync();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        lock.writeLock().lock();
+        try {
+            closeDelegate();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,592 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Pure-Java store that reads and writes the single-process, unencrypted MMKV file layout.
+ *
+ * <p>Data file: a little-endian uint32 actual size, then a varint item-count placeholder followed by
+ * append-only {@code [varint keyLen][key][varint valueLen][value]} records, where an empty value marks a
+ * removal. Meta file ({@code <id>.crc}): CRC32 of the data section, version, full-write sequence, IV,
+ * actual size and the last confirmed size/CRC pair.
+ */
+public class MappedFileKeyValueStore implements KeyValueStore {
+
+    private static final int PAGE_SIZE = 4096;
+    private static final int HEADER_SIZE = 4;
+    private static final int ITEM_SIZE_HOLDER = 0x00ffffff;
+    private static final int ITEM_SIZE_HOLDER_SIZE = 4;
+
+    private static final int META_VERSION_ACTUAL_SIZE = 3;
+    private static final int META_CRC_OFFSET = 0;
+    private static final int META_VERSION_OFFSET = 4;
+    private static final int META_SEQUENCE_OFFSET = 8;
+    private static final int META_ACTUAL_SIZE_OFFSET = 28;
+    private static final int META_LAST_ACTUAL_SIZE_OFFSET = 32;
+    private static final int META_LAST_CRC_OFFSET = 36;
+
+    private final String id;
+    private final File dataFile;
+    private final File metaFile;
+    private final boolean recoverOnError;
+    private final CapacitorMMKV.MMKVLogListener logListener;
+
+    // Key -> encoded value, in the order records were last written
+    private final Map<String, byte[]> entries = new LinkedHashMap<>();
+    private final CRC32 crc = new CRC32();
+
+    private RandomAccessFile dataRaf;
+    private RandomAccessFile metaRaf;
+    private MappedByteBuffer data;
+    private MappedByteBuffer meta;
+    private long fileSize;
+    private int actualSize;
+    private int sequence;
+    private boolean loaded;
+
+    public MappedFileKeyValueStore(File directory, String id, boolean recoverOnError, CapacitorMMKV.MMKVLogListener logListener) {
+        this.id = id;
+        this.dataFile = new File(directory, id);
+        this.metaFile = new File(directory, id + ".crc");
+        this.recoverOnError = recoverOnError;
+        this.logListener = logListener;
+        ensureLoaded();
+    }
+
+    @Override
+    public String id() {
+        return id;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        ensureMapped();
+        load();
+        loaded = true;
+    }
+
+    private void ensureMapped() {
+        if (data != null) {
+            return;
+        }
+        try {
+            mapFiles();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open " + id, e);
+        }
+    }
+
+    private void mapFiles() throws IOException {
+        dataRaf = new RandomAccessFile(dataFile, "rw");
+        fileSize = dataRaf.length();
+        if (fileSize < PAGE_SIZE || fileSize % PAGE_SIZE != 0) {
+            fileSize = roundUpToPage(Math.max(fileSize, PAGE_SIZE));
+            dataRaf.setLength(fileSize);
+        }
+        data = map(dataRaf, fileSize);
+
+        metaRaf = new RandomAccessFile(metaFile, "rw");
+        if (metaRaf.length() < PAGE_SIZE) {
+            metaRaf.setLength(PAGE_SIZE);
+        }
+        meta = map(metaRaf, PAGE_SIZE);
+    }
+
+    private static MappedByteBuffer map(RandomAccessFile file, long size) throws IOException {
+        MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private void load() {
+        entries.clear();
+        crc.reset();
+        sequence = meta.getInt(META_SEQUENCE_OFFSET);
+
+        int headerSize = data.getInt(0);
+        int size = meta.getInt(META_VERSION_OFFSET) >= META_VERSION_ACTUAL_SIZE ? meta.getInt(META_ACTUAL_SIZE_OFFSET) : headerSize;
+        if (size != headerSize && fitsInFile(headerSize)) {
+            // Meta and header disagree; trust whichever one the CRC confirms
+            size = crcOf(headerSize) == meta.getInt(META_CRC_OFFSET) ? headerSize : size;
+        }
+
+        boolean valid = true;
+        if (!fitsInFile(size)) {
+            logListener.onLog(CapacitorMMKV.LOG_LEVEL_ERROR, "File length error for: " + id, id);
+            valid = false;
+            size = (int) (fileSize - HEADER_SIZE);
+        } else if (crcOf(size) != meta.getInt(META_CRC_OFFSET)) {
+            int lastSize = meta.getInt(META_LAST_ACTUAL_SIZE_OFFSET);
+            if (lastSize != 0 && fitsInFile(lastSize) && crcOf(lastSize) == meta.getInt(META_LAST_CRC_OFFSET)) {
+                // The tail was never confirmed by a sync; fall back to the last synced state
+                size = lastSize;
+            } else {
+                logListener.onLog(CapacitorMMKV.LOG_LEVEL_ERROR, "CRC check failed for: " + id, id);
+                valid = false;
+            }
+        }
+
+        if (!valid && !recoverOnError) {
+            clearAll();
+            return;
+        }
+
+        int end = decode(size, !valid);
+        actualSize = end - HEADER_SIZE;
+        crc.update(slice(HEADER_SIZE, actualSize));
+        if (!valid || actualSize != headerSize) {
+            // Persist the recovered state so the next open passes its checks
+            fullWriteBack(0);
+        }
+    }
+
+    private boolean fitsInFile(int size) {
+        return size >= 0 && (long) size + HEADER_SIZE <= fileSize;
+    }
+
+    private int crcOf(int size) {
+        CRC32 check = new CRC32();
+        check.update(slice(HEADER_SIZE, size));
+        return (int) check.getValue();
+    }
+
+    private byte[] slice(int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = data.duplicate();
+        view.position(offset);
+        view.get(bytes);
+        return bytes;
+    }
+
+    // Returns the offset just past the last complete record; partial trailing records are dropped when greedy
+    private int decode(int size, boolean greedy) {
+        if (size == 0) {
+            return HEADER_SIZE;
+        }
+        byte[] section = slice(HEADER_SIZE, size);
+        int[] position = { 0 };
+        int lastComplete = 0;
+        try {
+            readVarint(section, position);
+            lastComplete = position[0];
+            while (position[0] < section.length) {
+                byte[] key = readLengthDelimited(section, position);
+                if (key.length == 0) {
+                    lastComplete = position[0];
+                    continue;
+                }
+                byte[] value = readLengthDelimited(section, position);
+                String name = new String(key, StandardCharsets.UTF_8);
+                entries.remove(name);
+                if (value.length > 0) {
+                    entries.put(name, value);
+                }
+                lastComplete = position[0];
+            }
+        } catch (IndexOutOfBoundsException e) {
+            if (!greedy) {
+                throw new IllegalStateException("Corrupt record in " + id + " at offset " + position[0], e);
+            }
+        }
+        return HEADER_SIZE + lastComplete;
+    }
+
+    private synchronized void append(String key, byte[] value) {
+        byte[] record = encodeRecord(key, value);
+        boolean needsHolder = actualSize == 0;
+        int needed = record.length + (needsHolder ? ITEM_SIZE_HOLDER_SIZE : 0);
+        if ((long) HEADER_SIZE + actualSize + needed > fileSize) {
+            // Out of space: compact every live entry (including this one) into a fresh image
+            fullWriteBack(record.length);
+            return;
+        }
+        int offset = HEADER_SIZE + actualSize;
+        if (needsHolder) {
+            byte[] holder = encodeVarint(ITEM_SIZE_HOLDER);
+            put(offset, holder);
+            crc.update(holder);
+            offset += holder.length;
+        }
+        put(offset, record);
+        crc.update(record);
+        actualSize += needed;
+        writeActualSize(false);
+    }
+
+    private void fullWriteBack(int pendingBytes) {
+        ByteArrayOutputStream image = new ByteArrayOutputStream(actualSize + pendingBytes + ITEM_SIZE_HOLDER_SIZE);
+        writeBytes(image, encodeVarint(ITEM_SIZE_HOLDER));
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            writeBytes(image, encodeRecord(entry.getKey(), entry.getValue()));
+        }
+        byte[] bytes = image.toByteArray();
+
+        // Leave headroom for future appends, the same way MMKV sizes its files
+        int averageItemSize = entries.isEmpty() ? bytes.length : bytes.length / entries.size();
+        long futureUsage = (long) averageItemSize * Math.max(8, (entries.size() + 1) / 2);
+        long required = HEADER_SIZE + bytes.length + futureUsage;
+        if (required >= fileSize) {
+            long newSize = fileSize;
+            while (newSize <= required) {
+                newSize *= 2;
+            }
+            resize(newSize);
+        }
+
+        put(HEADER_SIZE, bytes);
+        crc.reset();
+        crc.update(bytes);
+        actualSize = bytes.length;
+        writeActualSize(true);
+    }
+
+    private void resize(long newSize) {
+        try {
+            data.force();
+            dataRaf.setLength(newSize);
+            fileSize = newSize;
+            data = map(dataRaf, newSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to resize " + id, e);
+        }
+    }
+
+    private void put(int offset, byte[] bytes) {
+        ByteBuffer view = data.duplicate();
+        view.position(offset);
+        view.put(bytes);
+    }
+
+    // A full write-back (increaseSequence) also becomes the last confirmed state, as in MMKV, so recovery
+    // never falls back to a layout that compaction has overwritten
+    private void writeActualSize(boolean increaseSequence) {
+        data.putInt(0, actualSize);
+        int digest = (int) crc.getValue();
+        meta.putInt(META_CRC_OFFSET, digest);
+        // Files written by newer MMKV versions keep their version (and the fields it implies)
+        if (meta.getInt(META_VERSION_OFFSET) < META_VERSION_ACTUAL_SIZE) {
+            meta.putInt(META_VERSION_OFFSET, META_VERSION_ACTUAL_SIZE);
+        }
+        if (increaseSequence) {
+            sequence++;
+            meta.putInt(META_SEQUENCE_OFFSET, sequence);
+            meta.putInt(META_LAST_ACTUAL_SIZE_OFFSET, actualSize);
+            meta.putInt(META_LAST_CRC_OFFSET, digest);
+        }
+        meta.putInt(META_ACTUAL_SIZE_OFFSET, actualSize);
+    }
+
+    private static byte[] encodeRecord(String key, byte[] value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(keyBytes.length + value.length + 10);
+        writeBytes(out, encodeVarint(keyBytes.length));
+        writeBytes(out, keyBytes);
+        writeBytes(out, encodeVarint(value.length));
+        writeBytes(out, value);
+        return out.toByteArray();
+    }
+
+    private static void writeBytes(ByteArrayOutputStream out, byte[] bytes) {
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static byte[] encodeVarint(long value) {
+        byte[] buffer = new byte[10];
+        int length = 0;
+        while ((value & ~0x7FL) != 0) {
+            buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+        byte[] bytes = new byte[length];
+        System.arraycopy(buffer, 0, bytes, 0, length);
+        return bytes;
+    }
+
+    private static long readVarint(byte[] bytes, int[] position) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = bytes[position[0]++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IndexOutOfBoundsException("Malformed varint");
+    }
+
+    private static byte[] readLengthDelimited(byte[] bytes, int[] position) {
+        long length = readVarint(bytes, position);
+        if (length < 0 || length > bytes.length - position[0]) {
+            throw new IndexOutOfBoundsException("Truncated record");
+        }
+        byte[] result = new byte[(int) length];
+        System.arraycopy(bytes, position[0], result, 0, result.length);
+        position[0] += result.length;
+        return result;
+    }
+
+    private static long roundUpToPage(long size) {
+        return ((size + PAGE_SIZE - 1) / PAGE_SIZE) * PAGE_SIZE;
+    }
+
+    // Value encodings match MMKV's MiniPBCoder: int32 as (sign-extended) varint, bool as one byte,
+    // float as little-endian fixed32, strings and bytes as length-delimited
+
+    private static byte[] encodeLengthDelimited(byte[] bytes) {
+        byte[] length = encodeVarint(bytes.length);
+        byte[] result = new byte[length.length + bytes.length];
+        System.arraycopy(length, 0, result, 0, length.length);
+        System.arraycopy(bytes, 0, result, length.length, bytes.length);
+        return result;
+    }
+
+    private synchronized byte[] lookup(String key) {
+        ensureLoaded();
+        return entries.get(key);
+    }
+
+    private synchronized void store(String key, byte[] value) {
+        ensureLoaded();
+        entries.remove(key);
+        entries.put(key, value);
+        append(key, value);
+    }
+
+    @Override
+    public boolean encode(String key, String value) {
+        if (value == null) {
+            removeValueForKey(key);
+            return true;
+        }
+        store(key, encodeLengthDelimited(value.getBytes(StandardCharsets.UTF_8)));
+        return true;
+    }
+
+    @Override
+    public boolean encode(String key, int value) {
+        store(key, encodeVarint(value));
+        return true;
+    }
+
+    @Override
+    public boolean encode(String key, boolean value) {
+        store(key, new byte[] { (byte) (value ? 1 : 0) });
+        return true;
+    }
+
+    @Override
+    public boolean encode(String key, float value) {
+        int bits = Float.floatToIntBits(value);
+        store(key, new byte[] { (byte) bits, (byte) (bits >> 8), (byte) (bits >> 16), (byte) (bits >> 24) });
+        return true;
+    }
+
+    @Override
+    public boolean encode(String key, byte[] value) {
+        if (value == null) {
+            removeValueForKey(key);
+            return true;
+        }
+        store(key, encodeLengthDelimited(value));
+        return true;
+    }
+
+    @Override
+    public String decodeString(String key, String defaultValue) {
+        byte[] value = lookup(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return new String(readLengthDelimited(value, new int[] { 0 }), StandardCharsets.UTF_8);
+        } catch (IndexOutOfBoundsException e) {
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public int decodeInt(String key, int defaultValue) {
+        byte[] value = lookup(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return (int) readVarint(value, new int[] { 0 });
+        } catch (IndexOutOfBoundsException e) {
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public boolean decodeBool(String key, boolean defaultValue) {
+        byte[] value = lookup(key);
+        return value == null ? defaultValue : value[0] != 0;
+    }
+
+    @Override
+    public float decodeFloat(String key, float defaultValue) {
+        byte[] value = lookup(key);
+        if (value == null || value.length < 4) {
+            return defaultValue;
+        }
+        int bits = (value[0] & 0xFF) | (value[1] & 0xFF) << 8 | (value[2] & 0xFF) << 16 | (value[3] & 0xFF) << 24;
+        return Float.intBitsToFloat(bits);
+    }
+
+    @Override
+    public byte[] decodeBytes(String key, byte[] defaultValue) {
+        byte[] value = lookup(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return readLengthDelimited(value, new int[] { 0 });
+        } catch (IndexOutOfBoundsException e) {
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public synchronized boolean containsKey(String key) {
+        ensureLoaded();
+        return entries.containsKey(key);
+    }
+
+    @Override
+    public synchronized void removeValueForKey(String key) {
+        ensureLoaded();
+        if (entries.remove(key) != null) {
+            append(key, new byte[0]);
+        }
+    }
+
+    @Override
+    public synchronized void removeValuesForKeys(String[] keys) {
+        ensureLoaded();
+        boolean removed = false;
+        for (String key : keys) {
+            removed |= entries.remove(key) != null;
+        }
+        if (removed) {
+            // Like MMKV, a bulk removal rewrites the file instead of appending tombstones
+            fullWriteBack(0);
+        }
+    }
+
+    @Override
+    public synchronized String[] allKeys() {
+        ensureLoaded();
+        return entries.keySet().toArray(new String[0]);
+    }
+
+    @Override
+    public synchronized long count() {
+        ensureLoaded();
+        return entries.size();
+    }
+
+    // 0 once closed, like a store that was never mapped
+    @Override
+    public synchronized long totalSize() {
+        return data != null ? fileSize : 0;
+    }
+
+    @Override
+    public synchronized long actualSize() {
+        ensureLoaded();
+        return actualSize;
+    }
+
+    @Override
+    public synchronized void clearAll() {
+        ensureMapped();
+        entries.clear();
+        if (fileSize != PAGE_SIZE) {
+            truncate(PAGE_SIZE);
+        }
+        put(0, new byte[PAGE_SIZE]);
+        crc.reset();
+        actualSize = 0;
+        writeActualSize(true);
+        loaded = true;
+    }
+
+    @Override
+    public synchronized void trim() {
+        ensureLoaded();
+        if (actualSize == 0) {
+            clearAll();
+            return;
+        }
+        fullWriteBack(0);
+        long target = roundUpToPage(HEADER_SIZE + actualSize);
+        if (target < fileSize) {
+            truncate(target);
+        }
+    }
+
+    private void truncate(long newSize) {
+        try {
+            data.force();
+            data = null;
+            dataRaf.setLength(newSize);
+            fileSize = newSize;
+            data = map(dataRaf, newSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to truncate " + id, e);
+        }
+    }
+
+    @Override
+    public synchronized void clearMemoryCache() {
+        // Drop the decoded entries; they are rebuilt from the mapped file on next access
+        entries.clear();
+        loaded = false;
+    }
+
+    @Override
+    public synchronized void sync() {
+        if (data == null) {
+            return;
+        }
+        data.force();
+        meta.putInt(META_LAST_ACTUAL_SIZE_OFFSET, actualSize);
+        meta.putInt(META_LAST_CRC_OFFSET, (int) crc.getValue());
+        meta.force();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (data == null) {
+            return;
+        }
+        sync();
+        try {
+            dataRaf.close();
+            metaRaf.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close " + id, e);
+        } finally {
+            data = null;
+            meta = null;
+            fileSize = 0;
+            entries.clear();
+            loaded = false;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Backend that needs no native library: stores are MappedFileKeyValueStore files under rootDir
+public class MappedFileStorageBackend implements StorageBackend {
+
+    public static final String DEFAULT_ID = "mmkv.default";
+
+    private final File rootDir;
+    private final boolean recoverOnError;
+    private final ConcurrentHashMap<String, MappedFileKeyValueStore> stores = new ConcurrentHashMap<>();
+    private CapacitorMMKV.MMKVLogListener logListener = (level, message, mmkvId) -> {};
+
+    public MappedFileStorageBackend(File rootDir) {
+        this(rootDir, true);
+    }
+
+    // recoverOnError mirrors MMKVRecoverStrategic: keep what can still be decoded (true) or discard the file (false)
+    public MappedFileStorageBackend(File rootDir, boolean recoverOnError) {
+        this.rootDir = rootDir;
+        this.recoverOnError = recoverOnError;
+    }
+
+    @Override
+    public void initialize(CapacitorMMKV.MMKVLogListener logListener) {
+        if (!rootDir.isDirectory() && !rootDir.mkdirs()) {
+            throw new IllegalStateException("Unable to create MMKV root directory: " + rootDir);
+        }
+        this.logListener = logListener;
+    }
+
+    @Override
+    public KeyValueStore openDefault() {
+        return open(DEFAULT_ID);
+    }
+
+    @Override
+    public KeyValueStore open(String id) {
+        return stores.computeIfAbsent(id, storeId -> new MappedFileKeyValueStore(rootDir, storeId, recoverOnError, logListener));
+    }
+
+    @Override
+    public void setLogLevel(int level) {}
+}
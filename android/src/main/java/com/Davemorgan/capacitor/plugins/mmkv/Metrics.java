@@ -0,0 +1,183 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts, bytes and latencies of operations, per operation and instance. Latencies go into log-bucketed
+ * histograms: four buckets per power of two of nanoseconds, so percentiles are within 25% of the true
+ * value at any scale. Every counter is striped (LongAdder, or one bucket array per stripe picked by
+ * thread id) so recording from several threads doesn't contend on one cache line. Recorders are kept
+ * per operation, then per instance; per-operation totals are merged from them when a snapshot is taken.
+ */
+final class Metrics {
+
+    private static final int SUB_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    // Latencies are capped at 2^MAX_EXPONENT ns (about 18 minutes)
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+    private static final int STRIPES = Math.min(4, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors())));
+
+    private static final class Recorder {
+
+        final AtomicLongArray[] stripes = new AtomicLongArray[STRIPES];
+        final LongAdder bytesIn = new LongAdder();
+        final LongAdder bytesOut = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        Recorder() {
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new AtomicLongArray(BUCKETS);
+            }
+        }
+
+        void record(long nanos, long in, long out) {
+            stripes[(int) Thread.currentThread().getId() & (STRIPES - 1)].incrementAndGet(bucket(nanos));
+            if (in > 0) {
+                bytesIn.add(in);
+            }
+            if (out > 0) {
+                bytesOut.add(out);
+            }
+            maxNanos.accumulate(nanos);
+        }
+    }
+
+    // Accumulates recorders into one result
+    private static final class Merged {
+
+        final long[] buckets = new long[BUCKETS];
+        long bytesIn;
+        long bytesOut;
+        long maxNanos;
+
+        void add(Recorder recorder) {
+            for (AtomicLongArray stripe : recorder.stripes) {
+                for (int i = 0; i < BUCKETS; i++) {
+                    buckets[i] += stripe.get(i);
+                }
+            }
+            bytesIn += recorder.bytesIn.sum();
+            bytesOut += recorder.bytesOut.sum();
+            maxNanos = Math.max(maxNanos, recorder.maxNanos.get());
+        }
+
+        OperationMetrics result() {
+            long count = 0;
+            for (long bucket : buckets) {
+                count += bucket;
+            }
+            return new OperationMetrics(
+                count,
+                bytesIn,
+                bytesOut,
+                percentile(count, 0.50),
+                percentile(count, 0.95),
+                percentile(count, 0.99),
+                maxNanos
+            );
+        }
+
+        // Upper bound of the bucket holding the given rank, but never above the largest value seen
+        private long percentile(long count, double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+    }
+
+    // The recorders of one operation: one per instance, plus one for calls that span instances
+    private static final class Operation {
+
+        final Recorder spanning = new Recorder();
+        final ConcurrentHashMap<String, Recorder> byInstance = new ConcurrentHashMap<>();
+    }
+
+    private final ConcurrentHashMap<String, Operation> operations = new ConcurrentHashMap<>();
+    private final long startedAtMillis = System.currentTimeMillis();
+
+    // instance is null for operations that span instances, which then only count towards the operation.
+    // Two lookups by the caller's strings, so recording allocates nothing once a pair has been seen.
+    void record(String operation, String instance, long nanos, long bytesIn, long bytesOut) {
+        Operation recorders = operations.get(operation);
+        if (recorders == null) {
+            recorders = operations.computeIfAbsent(operation, key -> new Operation());
+        }
+        Recorder recorder;
+        if (instance == null) {
+            recorder = recorders.spanning;
+        } else {
+            recorder = recorders.byInstance.get(instance);
+            if (recorder == null) {
+                recorder = recorders.byInstance.computeIfAbsent(instance, key -> new Recorder());
+            }
+        }
+        recorder.record(nanos, bytesIn, bytesOut);
+    }
+
+    MetricsSnapshot snapshot() {
+        Map<String, Merged> operationTotals = new TreeMap<>();
+        Map<String, Map<String, Merged>> instances = new TreeMap<>();
+        for (Map.Entry<String, Operation> operation : operations.entrySet()) {
+            Merged total = new Merged();
+            total.add(operation.getValue().spanning);
+            for (Map.Entry<String, Recorder> entry : operation.getValue().byInstance.entrySet()) {
+                total.add(entry.getValue());
+                Merged merged = new Merged();
+                merged.add(entry.getValue());
+                instances.computeIfAbsent(entry.getKey(), instance -> new TreeMap<>()).put(operation.getKey(), merged);
+            }
+            operationTotals.put(operation.getKey(), total);
+        }
+
+        Map<String, OperationMetrics> byOperation = new LinkedHashMap<>();
+        for (Map.Entry<String, Merged> entry : operationTotals.entrySet()) {
+            byOperation.put(entry.getKey(), entry.getValue().result());
+        }
+        Map<String, Map<String, OperationMetrics>> byInstance = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Merged>> instance : instances.entrySet()) {
+            Map<String, OperationMetrics> instanceOperations = new LinkedHashMap<>();
+            for (Map.Entry<String, Merged> entry : instance.getValue().entrySet()) {
+                instanceOperations.put(entry.getKey(), entry.getValue().result());
+            }
+            byInstance.put(instance.getKey(), instanceOperations);
+        }
+        return new MetricsSnapshot(startedAtMillis, byOperation, byInstance);
+    }
+
+    // Values below 2^SUB_BITS ns get a bucket each; above, each power of two is split into SUB_BUCKETS
+    static int bucket(long nanos) {
+        long value = Math.max(0, Math.min(nanos, (1L << MAX_EXPONENT) - 1));
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+        return lower + (1L << (exponent - SUB_BITS)) - 1;
+    }
+}
@@ -0,0 +1,17 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import java.util.Map;
+
+// Everything recorded since startedAtMillis, per operation and per instance and operation
+public class MetricsSnapshot {
+
+    public final long startedAtMillis;
+    public final Map<String, OperationMetrics> operations;
+    public final Map<String, Map<String, OperationMetrics>> instances;
+
+    MetricsSnapshot(long startedAtMillis, Map<String, OperationMetrics> operations, Map<String, Map<String, OperationMetrics>> instances) {
+        this.startedAtMillis = startedAtMillis;
+        this.operations = operations;
+        this.instances = instances;
+    }
+}
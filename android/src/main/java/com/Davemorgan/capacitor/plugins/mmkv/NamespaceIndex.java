@@ -0,0 +1,94 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-instance index of the keys under each namespace. A namespace is indexed the first time it is
+ * enumerated or counted (one scan of the instance) and is then kept current by every write and
+ * removal, so later lookups cost O(namespace size) instead of O(instance size).
+ *
+ * <p>An update doesn't trust the mutation that triggered it: it asks the store whether the key is
+ * present, under the same lock as the initial scan. Concurrent writes to one key may reach the store
+ * and the index in different orders, but the last update always runs after the last mutation and so
+ * leaves the index matching the store. A clear drops the indexed namespaces, which are scanned again
+ * on next use.
+ */
+class NamespaceIndex {
+
+    private static final class Namespace {
+
+        final String name;
+        final Set<String> keys = new LinkedHashSet<>(); // as stored, "namespace:key"
+
+        Namespace(String name) {
+            this.name = name;
+        }
+
+        boolean owns(String namespacedKey) {
+            int length = name.length();
+            return namespacedKey.length() > length && namespacedKey.charAt(length) == ':' && namespacedKey.startsWith(name);
+        }
+    }
+
+    private final Map<String, Namespace> namespaces = new HashMap<>();
+    // The same namespaces, walked by onWrite so matching a key allocates nothing
+    private Namespace[] indexed = new Namespace[0];
+
+    synchronized String[] keys(String namespace, KeyValueStore store) {
+        Namespace entry = namespaceFor(namespace, store);
+        String[] keys = new String[entry.keys.size()];
+        int i = 0;
+        for (String namespacedKey : entry.keys) {
+            keys[i++] = namespacedKey.substring(namespace.length() + 1);
+        }
+        return keys;
+    }
+
+    synchronized int count(String namespace, KeyValueStore store) {
+        return namespaceFor(namespace, store).keys.size();
+    }
+
+    private Namespace namespaceFor(String namespace, KeyValueStore store) {
+        Namespace entry = namespaces.get(namespace);
+        if (entry == null) {
+            entry = new Namespace(namespace);
+            for (String key : store.allKeys()) {
+                if (entry.owns(key)) {
+                    entry.keys.add(key);
+                }
+            }
+            namespaces.put(namespace, entry);
+            indexed = Arrays.copyOf(indexed, indexed.length + 1);
+            indexed[indexed.length - 1] = entry;
+        }
+        return entry;
+    }
+
+    // Called after every mutation of namespacedKey in store. A key belongs to every indexed namespace
+    // that prefixes it at a ':' boundary.
+    synchronized void onWrite(String namespacedKey, KeyValueStore store) {
+        int state = 0; // 0 unknown, 1 present, 2 absent
+        for (Namespace entry : indexed) {
+            if (!entry.owns(namespacedKey)) {
+                continue;
+            }
+            if (state == 0) {
+                state = store.containsKey(namespacedKey) ? 1 : 2;
+            }
+            if (state == 1) {
+                entry.keys.add(namespacedKey);
+            } else {
+                entry.keys.remove(namespacedKey);
+            }
+        }
+    }
+
+    synchronized void onClear() {
+        namespaces.clear();
+        indexed = new Namespace[0];
+    }
+}
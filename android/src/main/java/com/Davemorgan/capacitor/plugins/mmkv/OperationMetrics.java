@@ -0,0 +1,23 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+// Latencies are in nanoseconds; percentiles are bucket upper bounds, accurate to 25%
+public class OperationMetrics {
+
+    public final long count;
+    public final long bytesIn;
+    public final long bytesOut;
+    public final long p50Nanos;
+    public final long p95Nanos;
+    public final long p99Nanos;
+    public final long maxNanos;
+
+    OperationMetrics(long count, long bytesIn, long bytesOut, long p50Nanos, long p95Nanos, long p99Nanos, long maxNanos) {
+        this.count = count;
+        this.bytesIn = bytesIn;
+        this.bytesOut = bytesOut;
+        this.p50Nanos = p50Nanos;
+        this.p95Nanos = p95Nanos;
+        this.p99Nanos = p99Nanos;
+        this.maxNanos = maxNanos;
+    }
+}
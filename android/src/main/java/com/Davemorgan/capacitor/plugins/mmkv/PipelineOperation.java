@@ -0,0 +1,114 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+public class PipelineOperation {
+
+    public enum Kind {
+        GET,
+        SET,
+        REMOVE,
+        REMOVE_MANY,
+        GET_ALL_KEYS,
+        CONTAINS,
+        COUNT,
+        TOTAL_SIZE,
+        CLEAR_ALL,
+        SET_LOG_LEVEL,
+        GET_LOG_LEVEL
+    }
+
+    public final Kind kind;
+    public final ValueType type;
+    public final String key;
+    public final String[] keys;
+    public final Object value;
+    public final String mmkvId;
+    public final String namespace;
+    public final String error;
+
+    public PipelineOperation(Kind kind, ValueType type, String key, String[] keys, Object value, String mmkvId, String namespace) {
+        this(kind, type, key, keys, value, mmkvId, namespace, null);
+    }
+
+    private PipelineOperation(
+        Kind kind,
+        ValueType type,
+        String key,
+        String[] keys,
+        Object value,
+        String mmkvId,
+        String namespace,
+        String error
+    ) {
+        this.kind = kind;
+        this.type = type;
+        this.key = key;
+        this.keys = keys;
+        this.value = value;
+        this.mmkvId = mmkvId;
+        this.namespace = namespace;
+        this.error = error;
+    }
+
+    // Placeholder for an operation that could not be parsed; it fails in place without aborting the pipeline
+    public static PipelineOperation invalid(String error) {
+        return new PipelineOperation(null, null, null, null, null, null, null, error);
+    }
+
+    // Maps a plugin method name such as "getString" or "removeValuesForKeys" to its kind and value type
+    public static Kind kindForMethod(String method) {
+        switch (method) {
+            case "getString":
+            case "getInt":
+            case "getBool":
+            case "getFloat":
+            case "getBytes":
+                return Kind.GET;
+            case "setString":
+            case "setInt":
+            case "setBool":
+            case "setFloat":
+            case "setBytes":
+                return Kind.SET;
+            case "removeValueForKey":
+                return Kind.REMOVE;
+            case "removeValuesForKeys":
+                return Kind.REMOVE_MANY;
+            case "getAllKeys":
+                return Kind.GET_ALL_KEYS;
+            case "contains":
+                return Kind.CONTAINS;
+            case "count":
+                return Kind.COUNT;
+            case "totalSize":
+                return Kind.TOTAL_SIZE;
+            case "clearAll":
+                return Kind.CLEAR_ALL;
+            case "setLogLevel":
+                return Kind.SET_LOG_LEVEL;
+            case "getLogLevel":
+                return Kind.GET_LOG_LEVEL;
+            default:
+                return null;
+        }
+    }
+
+    public static ValueType typeForMethod(String method) {
+        if (method.length() <= 3 || !(method.startsWith("get") || method.startsWith("set"))) {
+            return null;
+        }
+        switch (method.substring(3)) {
+            case "String":
+                return ValueType.STRING;
+            case "Int":
+                return ValueType.INT;
+            case "Bool":
+                return ValueType.BOOL;
+            case "Float":
+                return ValueType.FLOAT;
+            case "Bytes":
+                return ValueType.BYTES;
+            default:
+                return null;
+        }
+    }
+}
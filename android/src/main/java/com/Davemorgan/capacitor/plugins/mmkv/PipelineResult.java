@@ -0,0 +1,31 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+public class PipelineResult {
+
+    // Name of the result property, matching the single-call method ("value", "exists", "count", ...); null for void ops
+    public final String field;
+    public final Object value;
+    public final String error;
+
+    private PipelineResult(String field, Object value, String error) {
+        this.field = field;
+        this.value = value;
+        this.error = error;
+    }
+
+    public static PipelineResult ok() {
+        return new PipelineResult(null, null, null);
+    }
+
+    public static PipelineResult of(String field, Object value) {
+        return new PipelineResult(field, value, null);
+    }
+
+    public static PipelineResult failure(String error) {
+        return new PipelineResult(null, null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,16 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+public class PrewarmStats {
+
+    public final int instances;
+    public final int keys;
+    public final int found;
+    public final long nanos;
+
+    PrewarmStats(int instances, int keys, int found, long nanos) {
+        this.instances = instances;
+        this.keys = keys;
+        this.found = found;
+        this.nanos = nanos;
+    }
+}
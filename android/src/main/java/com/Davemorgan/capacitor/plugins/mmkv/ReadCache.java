@@ -0,0 +1,462 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Byte-budgeted read cache with W-TinyLFU admission: a small LRU window in front of a segmented LRU
+ * main area, where a window victim only enters the main area if a frequency sketch says it is used
+ * more often than the main area's own victim. Misses can be cached too, so repeated lookups of
+ * absent keys stay off the storage layer.
+ *
+ * <p>Hits don't lock: entries live in a concurrent map, and the recency and frequency updates a hit
+ * implies are recorded in small per-thread-stripe ring buffers. Whoever fills a buffer, or the next
+ * put or invalidation, applies them in a batch under the policy lock. A full buffer drops the update,
+ * which only costs the policy a little accuracy. Puts and invalidations take the lock.
+ */
+public class ReadCache {
+
+    public static class Stats {
+
+        public final long hits;
+        public final long negativeHits;
+        public final long misses;
+        public final long evictions;
+        public final long invalidations;
+        public final int entries;
+        public final long bytes;
+        public final long maxBytes;
+
+        Stats(long hits, long negativeHits, long misses, long evictions, long invalidations, int entries, long bytes, long maxBytes) {
+            this.hits = hits;
+            this.negativeHits = negativeHits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+            this.entries = entries;
+            this.bytes = bytes;
+            this.maxBytes = maxBytes;
+        }
+    }
+
+    // Returned by get() when the key is cached as absent
+    public static final Object ABSENT = new Object();
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+    // No longer in the cache; buffered accesses to it are ignored
+    private static final int REMOVED = -1;
+
+    // Rough per-entry overhead of the node, map entry and key string headers
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private static final int READ_BUFFERS = Math.min(16, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors())));
+    private static final int READ_BUFFER_SIZE = 32;
+    // A buffer holding this many accesses is drained by the thread that noticed, if the lock is free
+    private static final int READ_BUFFER_DRAIN_THRESHOLD = READ_BUFFER_SIZE / 2;
+
+    // Replaced, never updated, by put; the queue fields are guarded by the policy lock
+    private static final class Node {
+
+        final String key;
+        final String instance;
+        final Object value;
+        final ValueType type;
+        final long weight;
+        int queue;
+        Node prev;
+        Node next;
+
+        Node(String key, String instance, Object value, ValueType type, long weight) {
+            this.key = key;
+            this.instance = instance;
+            this.value = value;
+            this.type = type;
+            this.weight = weight;
+        }
+    }
+
+    private static final class Queue {
+
+        Node head;
+        Node tail;
+        long bytes;
+
+        void addLast(Node node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            bytes += node.weight;
+        }
+
+        void remove(Node node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            bytes -= node.weight;
+        }
+
+        void moveToLast(Node node) {
+            remove(node);
+            addLast(node);
+        }
+    }
+
+    // Lossy ring of accessed nodes: producers claim a slot with one CAS and give up when the ring is full
+    // or another thread won the slot; only the lock holder drains it
+    private static final class ReadBuffer {
+
+        final AtomicReferenceArray<Node> slots = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+        final AtomicLong writes = new AtomicLong();
+        final AtomicLong reads = new AtomicLong();
+
+        // Returns the number of accesses waiting, or -1 when this one was dropped
+        int offer(Node node) {
+            long read = reads.get();
+            long write = writes.get();
+            if (write - read >= READ_BUFFER_SIZE || !writes.compareAndSet(write, write + 1)) {
+                return -1;
+            }
+            slots.lazySet((int) write & (READ_BUFFER_SIZE - 1), node);
+            return (int) (write + 1 - read);
+        }
+
+        // Caller holds the policy lock
+        void drainTo(ReadCache cache) {
+            long read = reads.get();
+            long write = writes.get();
+            for (; read != write; read++) {
+                int index = (int) read & (READ_BUFFER_SIZE - 1);
+                Node node = slots.get(index);
+                if (node == null) {
+                    // Claimed but not yet published; picked up by the next drain
+                    break;
+                }
+                slots.lazySet(index, null);
+                cache.onAccess(node);
+            }
+            reads.lazySet(read);
+        }
+    }
+
+    private final long maxBytes;
+    private final long windowMax;
+    private final long protectedMax;
+    private final ConcurrentHashMap<String, Node> data = new ConcurrentHashMap<>();
+    private final ReadBuffer[] readBuffers = new ReadBuffer[READ_BUFFERS];
+    // Guards the queues, the sketch and the eviction and invalidation counts
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final Queue window = new Queue();
+    private final Queue probation = new Queue();
+    private final Queue protectedQueue = new Queue();
+    private final FrequencySketch sketch;
+
+    // Bumped by every invalidation; a load that started before one must not populate the cache
+    private volatile long epoch;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private long evictions;
+    private long invalidations;
+
+    public ReadCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.windowMax = Math.max(1, maxBytes / 100);
+        this.protectedMax = (maxBytes - windowMax) * 8 / 10;
+        this.sketch = new FrequencySketch(maxBytes / 128);
+        for (int i = 0; i < READ_BUFFERS; i++) {
+            readBuffers[i] = new ReadBuffer();
+        }
+    }
+
+    public static String cacheKey(String instance, String namespacedKey) {
+        return instance + '\u0000' + namespacedKey;
+    }
+
+    public long beginLoad() {
+        return epoch;
+    }
+
+    // Returns the cached value, ABSENT for a cached miss, or null when the cache can't answer for this type.
+    // Misses are typed too: a read with the wrong type also comes back empty, so it says nothing about others.
+    public Object get(String key, ValueType type) {
+        Node node = data.get(key);
+        if (node == null || node.type != type) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        if (node.value == ABSENT) {
+            negativeHits.increment();
+        }
+        ReadBuffer buffer = readBuffers[(int) Thread.currentThread().getId() & (READ_BUFFERS - 1)];
+        int waiting = buffer.offer(node);
+        if ((waiting < 0 || waiting >= READ_BUFFER_DRAIN_THRESHOLD) && policyLock.tryLock()) {
+            try {
+                buffer.drainTo(this);
+            } finally {
+                policyLock.unlock();
+            }
+        }
+        return node.value instanceof byte[] ? ((byte[]) node.value).clone() : node.value;
+    }
+
+    public void put(String key, String instance, ValueType type, Object value, long loadEpoch) {
+        Object stored = value == null ? ABSENT : value instanceof byte[] ? ((byte[]) value).clone() : value;
+        long weight = ENTRY_OVERHEAD + 2L * key.length() + weigh(stored);
+        if (weight > maxBytes) {
+            return;
+        }
+        policyLock.lock();
+        try {
+            if (loadEpoch != epoch) {
+                return;
+            }
+            drainReadBuffers();
+            // A put follows a miss, which counts as a use of the key
+            sketch.increment(key.hashCode());
+            Node node = new Node(key, instance, stored, type, weight);
+            Node previous = data.put(key, node);
+            if (previous != null) {
+                removeFromQueue(previous);
+            }
+            node.queue = WINDOW;
+            window.addLast(node);
+            evict();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    public void invalidate(String key) {
+        policyLock.lock();
+        try {
+            epoch++;
+            Node node = data.remove(key);
+            if (node != null) {
+                removeFromQueue(node);
+                invalidations++;
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    public void invalidateInstance(String instance) {
+        policyLock.lock();
+        try {
+            epoch++;
+            Iterator<Node> iterator = data.values().iterator();
+            while (iterator.hasNext()) {
+                Node node = iterator.next();
+                if (node.instance.equals(instance)) {
+                    iterator.remove();
+                    removeFromQueue(node);
+                    invalidations++;
+                }
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        policyLock.lock();
+        try {
+            drainReadBuffers();
+            return new Stats(
+                hits.sum(),
+                negativeHits.sum(),
+                misses.sum(),
+                evictions,
+                invalidations,
+                data.size(),
+                window.bytes + probation.bytes + protectedQueue.bytes,
+                maxBytes
+            );
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    // Caller holds the policy lock
+    private void drainReadBuffers() {
+        for (ReadBuffer buffer : readBuffers) {
+            buffer.drainTo(this);
+        }
+    }
+
+    // Caller holds the policy lock
+    private void onAccess(Node node) {
+        sketch.increment(node.key.hashCode());
+        switch (node.queue) {
+            case REMOVED:
+                break;
+            case WINDOW:
+                window.moveToLast(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protectedQueue.addLast(node);
+                // Keep the protected segment within its share by demoting its LRU entries
+                while (protectedQueue.bytes > protectedMax && protectedQueue.head != node) {
+                    Node demoted = protectedQueue.head;
+                    protectedQueue.remove(demoted);
+                    demoted.queue = PROBATION;
+                    probation.addLast(demoted);
+                }
+                break;
+            default:
+                protectedQueue.moveToLast(node);
+                break;
+        }
+    }
+
+    private void removeFromQueue(Node node) {
+        switch (node.queue) {
+            case REMOVED:
+                return;
+            case WINDOW:
+                window.remove(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                break;
+            default:
+                protectedQueue.remove(node);
+                break;
+        }
+        node.queue = REMOVED;
+    }
+
+    private void evict() {
+        // Window overflow moves to probation, where it competes with the main area's victim
+        while (window.bytes > windowMax && window.head != null) {
+            Node candidate = window.head;
+            window.remove(candidate);
+            candidate.queue = PROBATION;
+            probation.addLast(candidate);
+        }
+        while (window.bytes + probation.bytes + protectedQueue.bytes > maxBytes) {
+            Node victim = probation.head;
+            Node candidate = probation.tail;
+            if (victim == null) {
+                victim = protectedQueue.head != null ? protectedQueue.head : window.head;
+                evictNode(victim);
+                continue;
+            }
+            if (victim == candidate || sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+                evictNode(victim);
+            } else {
+                evictNode(candidate);
+            }
+        }
+    }
+
+    private void evictNode(Node node) {
+        removeFromQueue(node);
+        data.remove(node.key, node);
+        evictions++;
+    }
+
+    private static long weigh(Object value) {
+        if (value instanceof String) {
+            return 2L * ((String) value).length();
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        return 16;
+    }
+
+    // 4-bit count-min sketch that halves all counters periodically so old popularity fades
+    private static final class FrequencySketch {
+
+        private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int sampleSize;
+        private int size;
+
+        FrequencySketch(long expectedEntries) {
+            int length = Integer.highestOneBit((int) Math.min(1 << 16, Math.max(16, expectedEntries)) - 1) << 1;
+            table = new long[length];
+            sampleSize = 10 * length;
+        }
+
+        int frequency(int hashCode) {
+            int hash = spread(hashCode);
+            int start = (hash & 3) << 2;
+            int frequency = 15;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        void increment(int hashCode) {
+            int hash = spread(hashCode);
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                added |= incrementAt(indexOf(hash, i), start + i);
+            }
+            if (added && ++size >= sampleSize) {
+                reset();
+            }
+        }
+
+        private boolean incrementAt(int index, int counter) {
+            int offset = counter << 2;
+            long mask = 0xfL << offset;
+            if ((table[index] & mask) != mask) {
+                table[index] += 1L << offset;
+                return true;
+            }
+            return false;
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            size /= 2;
+        }
+
+        private int indexOf(int item, int i) {
+            long hash = (item + SEEDS[i]) * SEEDS[i];
+            hash += hash >>> 32;
+            return ((int) hash) & (table.length - 1);
+        }
+
+        private static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+public interface StorageBackend {
+    // Called once before any store is opened; storage-level diagnostics are reported through logListener
+    void initialize(CapacitorMMKV.MMKVLogListener logListener);
+
+    KeyValueStore openDefault();
+
+    KeyValueStore open(String id);
+
+    void setLogLevel(int level);
+}
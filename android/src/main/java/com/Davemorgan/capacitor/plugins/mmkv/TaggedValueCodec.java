@@ -0,0 +1,93 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encoding for type-tagged instances: every value is stored as a byte array whose first byte names
+ * its ValueType, so one decodeBytes lookup yields presence, type and value together.
+ */
+final class TaggedValueCodec {
+
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_INT = 2;
+    private static final byte TAG_BOOL = 3;
+    private static final byte TAG_FLOAT = 4;
+    private static final byte TAG_BYTES = 5;
+
+    private TaggedValueCodec() {}
+
+    static byte[] encode(ValueType type, Object value) {
+        switch (type) {
+            case STRING:
+                return withTag(TAG_STRING, ((String) value).getBytes(StandardCharsets.UTF_8));
+            case INT:
+                return withInt(TAG_INT, (Integer) value);
+            case BOOL:
+                return new byte[] { TAG_BOOL, (byte) ((Boolean) value ? 1 : 0) };
+            case FLOAT:
+                return withInt(TAG_FLOAT, Float.floatToIntBits((Float) value));
+            case BYTES:
+                return withTag(TAG_BYTES, (byte[]) value);
+            default:
+                throw new IllegalArgumentException("Unsupported type: " + type);
+        }
+    }
+
+    // null when encoded is not a well-formed tagged value, including when its length doesn't fit the tag
+    static ValueType typeOf(byte[] encoded) {
+        if (encoded == null || encoded.length == 0) {
+            return null;
+        }
+        switch (encoded[0]) {
+            case TAG_STRING:
+                return ValueType.STRING;
+            case TAG_INT:
+                return encoded.length == 5 ? ValueType.INT : null;
+            case TAG_BOOL:
+                return encoded.length == 2 ? ValueType.BOOL : null;
+            case TAG_FLOAT:
+                return encoded.length == 5 ? ValueType.FLOAT : null;
+            case TAG_BYTES:
+                return ValueType.BYTES;
+            default:
+                return null;
+        }
+    }
+
+    // null unless typeOf recognizes encoded
+    static Object decode(byte[] encoded) {
+        ValueType type = typeOf(encoded);
+        if (type == null) {
+            return null;
+        }
+        switch (type) {
+            case STRING:
+                return new String(encoded, 1, encoded.length - 1, StandardCharsets.UTF_8);
+            case INT:
+                return readInt(encoded);
+            case BOOL:
+                return encoded[1] != 0;
+            case FLOAT:
+                return Float.intBitsToFloat(readInt(encoded));
+            default:
+                byte[] bytes = new byte[encoded.length - 1];
+                System.arraycopy(encoded, 1, bytes, 0, bytes.length);
+                return bytes;
+        }
+    }
+
+    private static byte[] withTag(byte tag, byte[] payload) {
+        byte[] encoded = new byte[payload.length + 1];
+        encoded[0] = tag;
+        System.arraycopy(payload, 0, encoded, 1, payload.length);
+        return encoded;
+    }
+
+    private static byte[] withInt(byte tag, int value) {
+        return new byte[] { tag, (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value };
+    }
+
+    private static int readInt(byte[] encoded) {
+        return (encoded[1] & 0xFF) << 24 | (encoded[2] & 0xFF) << 16 | (encoded[3] & 0xFF) << 8 | (encoded[4] & 0xFF);
+    }
+}
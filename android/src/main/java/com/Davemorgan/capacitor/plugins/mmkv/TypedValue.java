@@ -0,0 +1,12 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+public class TypedValue {
+
+    public final ValueType type;
+    public final Object value;
+
+    public TypedValue(ValueType type, Object value) {
+        this.type = type;
+        this.value = value;
+    }
+}
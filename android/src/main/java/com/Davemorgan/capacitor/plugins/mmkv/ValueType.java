@@ -0,0 +1,28 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+public enum ValueType {
+    STRING("string"),
+    INT("int"),
+    BOOL("bool"),
+    FLOAT("float"),
+    BYTES("bytes");
+
+    private final String jsName;
+
+    ValueType(String jsName) {
+        this.jsName = jsName;
+    }
+
+    public String getJsName() {
+        return jsName;
+    }
+
+    public static ValueType fromJsName(String name) {
+        for (ValueType type : values()) {
+            if (type.jsName.equals(name)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,75 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class CallGateTest {
+
+    private final CallGate gate = new CallGate();
+    private final List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+
+    // Shaped like a plugin method: it parks itself and runs once replayed through the gate again
+    private void call(int id) {
+        if (gate.park(() -> call(id))) {
+            return;
+        }
+        executed.add(id);
+    }
+
+    private static List<Integer> range(int from, int to) {
+        List<Integer> values = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            values.add(i);
+        }
+        return values;
+    }
+
+    @Test
+    public void parkedCalls_runOnceInOrderWhenOpened() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            call(i);
+        }
+        assertTrue(executed.isEmpty());
+        assertEquals(100, gate.parkedCount());
+
+        Thread init = new Thread(gate::open);
+        init.start();
+        init.join(5000);
+        assertFalse(init.isAlive());
+        assertTrue(gate.isOpen());
+        assertEquals(range(0, 100), executed);
+    }
+
+    @Test
+    public void callsDuringReplay_queueBehindTheBacklog() throws InterruptedException {
+        gate.park(() -> {
+            // Another thread calls in while the backlog is being replayed
+            Thread caller = new Thread(() -> call(2));
+            caller.start();
+            try {
+                caller.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            call(0);
+        });
+        call(1);
+
+        gate.open();
+        assertEquals(range(0, 3), executed);
+        assertEquals(3, gate.parkedCount());
+    }
+
+    @Test
+    public void callsAfterOpen_runDirectly() {
+        gate.open();
+        call(0);
+        call(1);
+        assertEquals(range(0, 2), executed);
+        assertEquals(0, gate.parkedCount());
+    }
+}
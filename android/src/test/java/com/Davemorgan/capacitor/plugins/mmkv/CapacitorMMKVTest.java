@@ -0,0 +1,328 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CapacitorMMKVTest {
+
+    private CapacitorMMKV mmkv;
+    private File dir; // only for tests that relaunch on files
+
+    @Before
+    public void setUp() {
+        mmkv = new CapacitorMMKV(new InMemoryStorageBackend());
+        mmkv.initialize();
+    }
+
+    @After
+    public void tearDown() {
+        if (dir == null) {
+            return;
+        }
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private CapacitorMMKV launchOnFiles() throws IOException {
+        if (dir == null) {
+            dir = Files.createTempDirectory("mmkv-test").toFile();
+        }
+        CapacitorMMKV launched = new CapacitorMMKV(new MappedFileStorageBackend(dir));
+        launched.initialize();
+        return launched;
+    }
+
+    private static Set<String> setOf(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+
+    @Test
+    public void namespaces_keepKeysApart() {
+        mmkv.setString("name", "plain", null, null);
+        mmkv.setString("name", "user", null, "user");
+        mmkv.setInt("age", 30, null, "user");
+        mmkv.setString("name", "team", null, "team");
+
+        assertEquals("user", mmkv.getString("name", null, "user"));
+        assertEquals("team", mmkv.getString("name", null, "team"));
+        assertEquals(setOf("name", "age"), setOf(mmkv.getAllKeys(null, "user")));
+        assertEquals(2, mmkv.count(null, "user"));
+        assertTrue(mmkv.contains("age", null, "user"));
+        assertFalse(mmkv.contains("age", null, "team"));
+
+        mmkv.clearAll(null, "user");
+        assertEquals(0, mmkv.count(null, "user"));
+        assertEquals("plain", mmkv.getString("name", null, null));
+        assertEquals("team", mmkv.getString("name", null, "team"));
+    }
+
+    @Test
+    public void setMany_thenGetMany_acrossInstancesAndNamespaces() {
+        mmkv.setMany(
+            Arrays.asList(
+                new BatchEntry("a", ValueType.STRING, "one", null, null, null),
+                new BatchEntry("b", ValueType.INT, 2, "other", "ns", null),
+                new BatchEntry("c", ValueType.BOOL, true, "other", null, null),
+                new BatchEntry("d", ValueType.BYTES, new byte[] { 4 }, null, "ns", null)
+            )
+        );
+
+        Map<String, Object> values = mmkv.getMany(
+            Arrays.asList(
+                new BatchEntry("a", ValueType.STRING, null, null, null, "first"),
+                new BatchEntry("b", ValueType.INT, null, "other", "ns", null),
+                new BatchEntry("c", ValueType.BOOL, null, "other", null, null),
+                new BatchEntry("d", ValueType.BYTES, null, "", "ns", null),
+                new BatchEntry("missing", ValueType.FLOAT, null, "other", "ns", null)
+            )
+        );
+        // Results are keyed by alias, else by the namespaced key
+        assertEquals(Arrays.asList("first", "ns:b", "c", "ns:d", "ns:missing"), Arrays.asList(values.keySet().toArray()));
+        assertEquals("one", values.get("first"));
+        assertEquals(2, values.get("ns:b"));
+        assertEquals(true, values.get("c"));
+        assertArrayEquals(new byte[] { 4 }, (byte[]) values.get("ns:d"));
+        assertNull(values.get("ns:missing"));
+    }
+
+    @Test
+    public void pipeline_reportsFailuresInPlace() {
+        List<PipelineResult> results = mmkv.pipeline(
+            Arrays.asList(
+                new PipelineOperation(PipelineOperation.Kind.SET, ValueType.INT, "key", null, 7, null, "ns"),
+                PipelineOperation.invalid("Unknown method: frobnicate"),
+                new PipelineOperation(PipelineOperation.Kind.GET, ValueType.INT, "key", null, null, null, "ns"),
+                new PipelineOperation(PipelineOperation.Kind.COUNT, null, null, null, null, null, "ns")
+            )
+        );
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("Unknown method: frobnicate", results.get(1).error);
+        assertEquals(7, results.get(2).value);
+        assertEquals(1, results.get(3).value);
+    }
+
+    @Test
+    public void readCache_seesWritesAndRemovals() {
+        mmkv.configureReadCache(1 << 20);
+        assertNull(mmkv.getString("key", null, "ns"));
+        mmkv.setString("key", "first", null, "ns");
+        assertEquals("first", mmkv.getString("key", null, "ns"));
+        assertEquals("first", mmkv.getString("key", null, "ns"));
+        mmkv.setString("key", "second", null, "ns");
+        assertEquals("second", mmkv.getString("key", null, "ns"));
+        mmkv.removeValueForKey("key", null, "ns");
+        assertNull(mmkv.getString("key", null, "ns"));
+        mmkv.setString("key", "third", null, "ns");
+        mmkv.clearAll(null, null);
+        assertNull(mmkv.getString("key", null, "ns"));
+        assertTrue(mmkv.getReadCacheStats().hits > 0);
+    }
+
+    @Test
+    public void metrics_recordEachCallUnderItsOwnOperationOnly() {
+        mmkv.setString("a", "1", null, "prefixed");
+        mmkv.setString("b", "2", null, "prefixed");
+        mmkv.setNamespaceInstances("split", true);
+        mmkv.setString("a", "1", "split", "one");
+        mmkv.setString("a", "1", "split", "two");
+        mmkv.configureMetrics(true, 0);
+
+        mmkv.clearAll(null, "prefixed");
+        mmkv.clearAll("split", null);
+        Map<String, OperationMetrics> operations = mmkv.getMetrics(false).operations;
+        assertEquals(setOf("clearAll"), operations.keySet());
+        assertEquals(2, operations.get("clearAll").count);
+        assertEquals(1, mmkv.getMetrics(false).instances.get("split").get("clearAll").count);
+    }
+
+    @Test
+    public void writeBehind_isVisibleBeforeFlush() {
+        mmkv.setWriteBehind("buffered", true);
+        mmkv.setInt("key", 1, "buffered", "ns");
+        mmkv.setInt("key", 2, "buffered", "ns");
+        assertEquals(Integer.valueOf(2), mmkv.getInt("key", "buffered", "ns"));
+        assertEquals(setOf("key"), setOf(mmkv.getAllKeys("buffered", "ns")));
+        mmkv.clearAll("buffered", null);
+        assertNull(mmkv.getInt("key", "buffered", "ns"));
+    }
+
+    @Test
+    public void typeTagged_readsOnlyTheStoredType() {
+        mmkv.setTypeTagged("tagged", true);
+        mmkv.setInt("key", 5, "tagged", null);
+        assertEquals(Integer.valueOf(5), mmkv.getInt("key", "tagged", null));
+        assertNull(mmkv.getString("key", "tagged", null));
+        TypedValue value = mmkv.getValue("key", "tagged", null);
+        assertEquals(ValueType.INT, value.type);
+        assertEquals(5, value.value);
+        assertNull(mmkv.getValue("missing", "tagged", null));
+    }
+
+    @Test
+    public void typeTagged_keepsEarlierValuesReadable() {
+        mmkv.setString("old", "untagged", "mixed", null);
+        mmkv.setTypeTagged("mixed", true);
+        mmkv.setString("new", "tagged", "mixed", null);
+        assertEquals("untagged", mmkv.getString("old", "mixed", null));
+        assertEquals("tagged", mmkv.getString("new", "mixed", null));
+        assertNull(mmkv.getValue("old", "mixed", null));
+
+        try {
+            mmkv.setTypeTagged("mixed", false);
+            fail("Turning tagging off with data present should be refused");
+        } catch (IllegalStateException expected) {
+            assertTrue(mmkv.isTypeTagged("mixed"));
+        }
+        mmkv.clearAll("mixed", null);
+        mmkv.setTypeTagged("mixed", false);
+        assertFalse(mmkv.isTypeTagged("mixed"));
+    }
+
+    @Test
+    public void typeTagged_earlierBytesStartingWithATagStayUntagged() {
+        mmkv.setBytes("five", new byte[] { 5, 1, 2 }, "mixed", null);
+        mmkv.setBytes("one", new byte[] { 1, 65 }, "mixed", "ns");
+        mmkv.setTypeTagged("mixed", true);
+
+        assertArrayEquals(new byte[] { 5, 1, 2 }, mmkv.getBytes("five", "mixed", null));
+        assertArrayEquals(new byte[] { 1, 65 }, mmkv.getBytes("one", "mixed", "ns"));
+        assertNull(mmkv.getString("one", "mixed", "ns"));
+        assertNull(mmkv.getValue("five", "mixed", null));
+
+        // Written again, the keys hold tagged values
+        mmkv.setBytes("five", new byte[] { 7 }, "mixed", null);
+        mmkv.removeValueForKey("one", "mixed", "ns");
+        mmkv.setString("one", "A", "mixed", "ns");
+        assertArrayEquals(new byte[] { 7 }, mmkv.getBytes("five", "mixed", null));
+        assertEquals(ValueType.BYTES, mmkv.getValue("five", "mixed", null).type);
+        assertEquals("A", mmkv.getString("one", "mixed", "ns"));
+        assertNull(mmkv.getBytes("one", "mixed", "ns"));
+    }
+
+    @Test
+    public void typeTagged_earlierValuesStayUntaggedAfterRelaunch() throws IOException {
+        CapacitorMMKV first = launchOnFiles();
+        first.setBytes("key", new byte[] { 5, 1, 2 }, "mixed", null);
+        first.setNamespaceInstances("mixed", true);
+        first.setBytes("key", new byte[] { 2, 0, 0, 0, 9 }, "mixed", "ns");
+        first.setTypeTagged("mixed", true);
+        first.setInt("count", 9, "mixed", "ns");
+
+        CapacitorMMKV second = launchOnFiles();
+        assertArrayEquals(new byte[] { 5, 1, 2 }, second.getBytes("key", "mixed", null));
+        assertArrayEquals(new byte[] { 2, 0, 0, 0, 9 }, second.getBytes("key", "mixed", "ns"));
+        assertNull(second.getValue("key", "mixed", "ns"));
+        assertEquals(Integer.valueOf(9), second.getInt("count", "mixed", "ns"));
+
+        // Once cleared, every value is read as tagged
+        second.clearAll("mixed", null);
+        second.setBytes("key", new byte[] { 5, 1, 2 }, "mixed", null);
+        assertEquals(ValueType.BYTES, second.getValue("key", "mixed", null).type);
+    }
+
+    @Test
+    public void namespaceInstances_readLegacyKeysWithoutMovingThem() {
+        mmkv.setInt("count", 0, "legacy", "ns");
+        mmkv.setString("name", "abc", "legacy", "ns");
+        mmkv.setNamespaceInstances("legacy", true);
+
+        // Reads with the wrong type must not rewrite the legacy values
+        mmkv.getString("count", "legacy", "ns");
+        mmkv.getInt("name", "legacy", "ns");
+        assertEquals(Integer.valueOf(0), mmkv.getInt("count", "legacy", "ns"));
+        assertEquals("abc", mmkv.getString("name", "legacy", "ns"));
+        assertEquals(setOf("ns:count", "ns:name"), setOf(mmkv.getAllKeys("legacy", null)));
+        assertEquals(2, mmkv.count("legacy", "ns"));
+
+        // A write moves the key
+        mmkv.setInt("count", 1, "legacy", "ns");
+        assertEquals(setOf("ns:name"), setOf(mmkv.getAllKeys("legacy", null)));
+        assertEquals(Integer.valueOf(1), mmkv.getInt("count", "legacy", "ns"));
+        assertEquals(setOf("count", "name"), setOf(mmkv.getAllKeys("legacy", "ns")));
+    }
+
+    @Test
+    public void namespaceInstances_typeTaggedCopyMovesEverything() {
+        mmkv.setTypeTagged("tagged", true);
+        mmkv.setInt("count", 3, "tagged", "ns");
+        mmkv.setString("name", "abc", "tagged", "ns");
+        mmkv.setNamespaceInstances("tagged", true);
+
+        assertEquals(Integer.valueOf(3), mmkv.getInt("count", "tagged", "ns"));
+        assertEquals(0, mmkv.getAllKeys("tagged", null).length);
+        assertEquals(ValueType.STRING, mmkv.getValue("name", "tagged", "ns").type);
+    }
+
+    @Test
+    public void getMany_readsNamespaceInstancesAndLegacyKeys() {
+        mmkv.setString("legacy", "old", "split", "ns");
+        mmkv.setNamespaceInstances("split", true);
+        mmkv.setString("moved", "new", "split", "ns");
+
+        Map<String, Object> values = mmkv.getMany(
+            Arrays.asList(
+                new BatchEntry("legacy", ValueType.STRING, null, "split", "ns", null),
+                new BatchEntry("moved", ValueType.STRING, null, "split", "ns", null)
+            )
+        );
+        assertEquals("old", values.get("ns:legacy"));
+        assertEquals("new", values.get("ns:moved"));
+    }
+
+    @Test
+    public void instanceModes_surviveRelaunch() throws IOException {
+        CapacitorMMKV first = launchOnFiles();
+        first.setTypeTagged("tagged", true);
+        first.setNamespaceInstances("split", true);
+        first.setInt("key", 1, "tagged", null);
+        first.setString("key", "value", "split", "ns");
+
+        CapacitorMMKV second = launchOnFiles();
+        assertTrue(second.isTypeTagged("tagged"));
+        assertTrue(second.isNamespaceInstanced("split"));
+        assertFalse(second.isNamespaceInstanced("tagged"));
+        assertEquals(ValueType.INT, second.getValue("key", "tagged", null).type);
+        assertEquals("value", second.getString("key", "split", "ns"));
+        assertEquals(0, second.getAllKeys("split", null).length);
+    }
+
+    @Test
+    public void namespaceInstances_offRefusedWhileNamespacesHoldData() {
+        mmkv.setNamespaceInstances("split", true);
+        mmkv.setString("key", "value", "split", "ns");
+        try {
+            mmkv.setNamespaceInstances("split", false);
+            fail("Turning namespace instances off with data present should be refused");
+        } catch (IllegalStateException expected) {
+            assertTrue(mmkv.isNamespaceInstanced("split"));
+        }
+        assertEquals("value", mmkv.getString("key", "split", "ns"));
+
+        mmkv.clearAll("split", null);
+        mmkv.setNamespaceInstances("split", false);
+        mmkv.setString("key", "prefixed", "split", "ns");
+        assertEquals(setOf("ns:key"), setOf(mmkv.getAllKeys("split", null)));
+
+        // Turning it back on finds the prefixed key again
+        mmkv.setNamespaceInstances("split", true);
+        assertEquals("prefixed", mmkv.getString("key", "split", "ns"));
+    }
+}
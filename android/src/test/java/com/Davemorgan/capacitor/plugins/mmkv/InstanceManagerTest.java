@@ -0,0 +1,106 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+public class InstanceManagerTest {
+
+    private final InstanceManager instances = new InstanceManager(new InMemoryStorageBackend());
+
+    @After
+    public void tearDown() {
+        instances.configure(0, 0);
+    }
+
+    @Test
+    public void sweep_closesIdleInstancesButNotTheDefault() throws InterruptedException {
+        ManagedKeyValueStore defaultStore = instances.openDefault();
+        ManagedKeyValueStore idle = instances.get("idle");
+        idle.encode("key", 1);
+        instances.configure(1, 0);
+        Thread.sleep(5);
+
+        ManagedKeyValueStore active = instances.get("active");
+        active.encode("key", 2);
+        instances.sweep();
+        assertFalse(idle.isOpen());
+        assertTrue(defaultStore.isOpen());
+
+        // Reopened on next use, with its data
+        assertEquals(1, idle.decodeInt("key", 0));
+        assertTrue(idle.isOpen());
+    }
+
+    @Test
+    public void budget_closesLeastRecentlyUsedFirst() throws InterruptedException {
+        instances.configure(0, 150);
+        ManagedKeyValueStore older = instances.get("older");
+        older.encode("key", new byte[100]);
+        Thread.sleep(2);
+        ManagedKeyValueStore newer = instances.get("newer");
+        newer.encode("key", new byte[100]);
+
+        instances.sweep();
+        assertFalse(older.isOpen());
+        assertTrue(newer.isOpen());
+        assertEquals(1, instances.openStores().size());
+    }
+
+    @Test
+    public void openAsync_sharesOneOpenPerInstance() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger opens = new AtomicInteger();
+        InstanceManager blocking = new InstanceManager(
+            new InMemoryStorageBackend() {
+                @Override
+                public KeyValueStore open(String id) {
+                    opens.incrementAndGet();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return super.open(id);
+                }
+            }
+        );
+
+        CompletableFuture<KeyValueStore> first = blocking.openAsync("slow");
+        CompletableFuture<KeyValueStore> second = blocking.openAsync("slow");
+        assertSame(first, second);
+        assertFalse(first.isDone());
+
+        release.countDown();
+        KeyValueStore store = first.get(5, TimeUnit.SECONDS);
+        assertTrue(blocking.openAsync("slow").isDone());
+        assertSame(store, blocking.openAsync("slow").get());
+        assertEquals(1, opens.get());
+    }
+
+    @Test
+    public void periodicFlush_stopsWithTheLastWriteBehindStore() {
+        ManagedKeyValueStore first = instances.get("first");
+        ManagedKeyValueStore second = instances.get("second");
+        assertFalse(instances.isFlushScheduled());
+
+        instances.setWriteBehind(first, true);
+        instances.setWriteBehind(second, true);
+        assertTrue(instances.isFlushScheduled());
+
+        instances.setWriteBehind(first, false);
+        assertTrue(instances.isFlushScheduled());
+        second.encode("key", 1);
+        instances.setWriteBehind(second, false);
+        assertFalse(instances.isFlushScheduled());
+        assertFalse(second.hasPendingWrites());
+
+        instances.setWriteBehind(first, true);
+        assertTrue(instances.isFlushScheduled());
+    }
+}
@@ -0,0 +1,91 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+public class KeyChangeNotifierTest {
+
+    private final KeyChangeNotifier notifier = new KeyChangeNotifier();
+    private final BlockingQueue<List<KeyChange>> batches = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() {
+        notifier.setListener(batches::add);
+        notifier.setWindow(50);
+    }
+
+    private List<KeyChange> nextBatch() throws InterruptedException {
+        List<KeyChange> batch = batches.poll(5, TimeUnit.SECONDS);
+        assertNotNull("No batch delivered", batch);
+        return batch;
+    }
+
+    private static String describe(KeyChange change) {
+        return change.mmkvId + "/" + change.namespace + "/" + change.key + (change.removed ? " removed" : "");
+    }
+
+    @Test
+    public void changesInOneWindow_keepOnlyTheLatestPerKey() throws InterruptedException {
+        notifier.watch(null, null, null);
+        notifier.changed("a", "ns", "k", false);
+        notifier.changed("a", "ns", "j", false);
+        notifier.changed("a", "ns", "k", false);
+        notifier.changed("a", "ns", "k", true);
+
+        List<KeyChange> batch = nextBatch();
+        assertEquals(2, batch.size());
+        // In order of each key's last change
+        assertEquals("a/ns/j", describe(batch.get(0)));
+        assertEquals("a/ns/k removed", describe(batch.get(1)));
+
+        // The next change opens a new window
+        notifier.changed("a", "ns", "k", false);
+        assertEquals(1, nextBatch().size());
+    }
+
+    @Test
+    public void clear_replacesWhatWasPendingForIt() throws InterruptedException {
+        notifier.watch(null, null, null);
+        notifier.changed("a", "ns", "k", false);
+        notifier.changed("a", "other", "k", false);
+        notifier.changed("b", "ns", "k", false);
+        notifier.changed("a", "ns", null, true);
+
+        List<KeyChange> batch = nextBatch();
+        assertEquals(3, batch.size());
+        assertEquals("a/other/k", describe(batch.get(0)));
+        assertEquals("b/ns/k", describe(batch.get(1)));
+        assertEquals("a/ns/null removed", describe(batch.get(2)));
+    }
+
+    @Test
+    public void changes_carryTheWatchesTheyMatch() throws InterruptedException {
+        assertFalse(notifier.isWatched());
+        notifier.changed("a", "ns", "ignored", false);
+
+        int all = notifier.watch(null, null, null);
+        int prefixed = notifier.watch("a", "ns", "user.");
+        notifier.changed("a", null, null, true);
+        notifier.changed("a", "ns", "user.name", false);
+        notifier.changed("a", "ns", "other", false);
+
+        List<KeyChange> batch = nextBatch();
+        assertEquals(3, batch.size());
+        // Clearing the whole instance matches every watch on it
+        assertArrayEquals(new int[] { all, prefixed }, batch.get(0).watchIds);
+        assertArrayEquals(new int[] { all, prefixed }, batch.get(1).watchIds);
+        assertArrayEquals(new int[] { all }, batch.get(2).watchIds);
+
+        assertTrue(notifier.unwatch(all));
+        assertTrue(notifier.unwatch(prefixed));
+        assertFalse(notifier.unwatch(prefixed));
+        notifier.changed("a", "ns", "user.name", false);
+        assertNull(batches.poll(200, TimeUnit.MILLISECONDS));
+    }
+}
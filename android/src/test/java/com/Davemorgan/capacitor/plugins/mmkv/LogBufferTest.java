@@ -0,0 +1,102 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Test;
+
+public class LogBufferTest {
+
+    private final List<LogEntry> delivered = new ArrayList<>(); // only touched by the drain thread until drained
+    private final AtomicLong reportedDrops = new AtomicLong();
+    private final CountDownLatch drained = new CountDownLatch(1);
+    private LogBuffer buffer;
+
+    @After
+    public void tearDown() {
+        if (buffer != null) {
+            buffer.close();
+        }
+    }
+
+    // Flushes only on close, so every entry offered before is still buffered
+    private LogBuffer buffer(int capacity) {
+        buffer = new LogBuffer(capacity, TimeUnit.MINUTES.toMillis(10), 1000, (entries, dropped) -> {
+            delivered.addAll(entries);
+            reportedDrops.addAndGet(dropped);
+            drained.countDown();
+        });
+        return buffer;
+    }
+
+    private void drain() throws InterruptedException {
+        buffer.close();
+        assertTrue(drained.await(5, TimeUnit.SECONDS));
+        buffer = null;
+    }
+
+    @Test
+    public void fullRing_dropsAndCountsOverflow() throws InterruptedException {
+        LogBuffer logs = buffer(4);
+        int accepted = 0;
+        for (int i = 0; i < 10; i++) {
+            if (logs.offer(CapacitorMMKV.LOG_LEVEL_INFO, "entry " + i, null)) {
+                accepted++;
+            }
+        }
+        assertEquals(4, accepted);
+        assertEquals(6, logs.stats().droppedOverflow);
+
+        drain();
+        assertEquals(4, delivered.size());
+        assertEquals("entry 0", delivered.get(0).message);
+        assertEquals(6, reportedDrops.get());
+        assertEquals(4, logs.stats().delivered);
+    }
+
+    @Test
+    public void rateLimit_dropsBeyondTheCap() throws InterruptedException {
+        LogBuffer logs = buffer(64);
+        logs.setLevelLimit(CapacitorMMKV.LOG_LEVEL_DEBUG, 3, 1);
+        int accepted = 0;
+        for (int i = 0; i < 10; i++) {
+            if (logs.offer(CapacitorMMKV.LOG_LEVEL_DEBUG, "debug", null)) {
+                accepted++;
+            }
+        }
+        // A second boundary may fall in the loop and reset the cap once
+        assertTrue(accepted >= 3 && accepted <= 6);
+        assertEquals(10 - accepted, logs.stats().droppedRateLimited);
+        // Other levels are not limited
+        assertTrue(logs.offer(CapacitorMMKV.LOG_LEVEL_ERROR, "error", null));
+
+        drain();
+        assertEquals(accepted + 1, delivered.size());
+        assertEquals(10 - accepted, reportedDrops.get());
+    }
+
+    @Test
+    public void sampling_dropsAndCountsSeparately() throws InterruptedException {
+        LogBuffer logs = buffer(64);
+        logs.setLevelLimit(CapacitorMMKV.LOG_LEVEL_VERBOSE, 0, 0);
+        for (int i = 0; i < 5; i++) {
+            assertFalse(logs.offer(CapacitorMMKV.LOG_LEVEL_VERBOSE, "verbose", null));
+        }
+        LogStats stats = logs.stats();
+        assertEquals(5, stats.droppedSampled);
+        assertEquals(0, stats.droppedRateLimited);
+        assertEquals(0, stats.droppedOverflow);
+
+        // No cap and a rate of 1 lifts the limit
+        logs.setLevelLimit(CapacitorMMKV.LOG_LEVEL_VERBOSE, 0, 1);
+        assertTrue(logs.offer(CapacitorMMKV.LOG_LEVEL_VERBOSE, "verbose", null));
+        drain();
+        assertEquals(1, delivered.size());
+        assertEquals(5, reportedDrops.get());
+    }
+}
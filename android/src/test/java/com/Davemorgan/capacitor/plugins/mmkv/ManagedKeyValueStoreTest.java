@@ -0,0 +1,120 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ManagedKeyValueStoreTest {
+
+    // Counts the writes that reach the underlying store
+    private static final class CountingStore extends InMemoryKeyValueStore {
+
+        int writes;
+
+        CountingStore(String id) {
+            super(id);
+        }
+
+        @Override
+        public boolean encode(String key, String value) {
+            writes++;
+            return super.encode(key, value);
+        }
+
+        @Override
+        public boolean encode(String key, int value) {
+            writes++;
+            return super.encode(key, value);
+        }
+
+        @Override
+        public void removeValueForKey(String key) {
+            writes++;
+            super.removeValueForKey(key);
+        }
+    }
+
+    private final CountingStore delegate = new CountingStore("test");
+    private ManagedKeyValueStore store;
+
+    @Before
+    public void setUp() {
+        store = new ManagedKeyValueStore("test", id -> delegate, null);
+        store.setWriteBehind(true);
+    }
+
+    @Test
+    public void repeatedWrites_coalesceIntoOne() {
+        for (int i = 0; i < 100; i++) {
+            store.encode("counter", i);
+        }
+        assertEquals(0, delegate.writes);
+        assertTrue(store.hasPendingWrites());
+
+        store.flush();
+        assertEquals(1, delegate.writes);
+        assertEquals(99, delegate.decodeInt("counter", -1));
+        assertFalse(store.hasPendingWrites());
+    }
+
+    @Test
+    public void reads_seeBufferedWritesAndRemovals() {
+        delegate.encode("kept", "stored");
+        delegate.encode("removed", "stored");
+        delegate.writes = 0;
+
+        store.encode("kept", "buffered");
+        store.removeValueForKey("removed");
+        store.encode("added", 5);
+        assertEquals("buffered", store.decodeString("kept", null));
+        assertNull(store.decodeString("removed", null));
+        assertFalse(store.containsKey("removed"));
+        assertEquals(5, store.decodeInt("added", 0));
+        assertEquals(0, delegate.writes);
+    }
+
+    @Test
+    public void wholeStoreOperations_flushFirst() {
+        store.encode("a", 1);
+        store.encode("b", 2);
+        store.removeValueForKey("a");
+        assertEquals(1, store.count());
+        assertArrayEquals(new String[] { "b" }, store.allKeys());
+        assertEquals(2, delegate.decodeInt("b", 0));
+    }
+
+    @Test
+    public void readWithOtherType_flushesAndReadsStore() {
+        store.encode("key", "text");
+        assertEquals(0, store.decodeInt("key", 0));
+        assertEquals("text", delegate.decodeString("key", null));
+        assertFalse(store.hasPendingWrites());
+    }
+
+    @Test
+    public void clearAll_dropsBufferedWrites() {
+        delegate.encode("stored", 1);
+        store.encode("buffered", 2);
+        store.clearAll();
+        assertFalse(store.hasPendingWrites());
+        assertEquals(0, delegate.count());
+        assertFalse(store.containsKey("buffered"));
+
+        // Writes after the clear are kept
+        store.encode("after", 3);
+        store.flush();
+        assertEquals(3, delegate.decodeInt("after", 0));
+        assertEquals(1, delegate.count());
+    }
+
+    @Test
+    public void disablingWriteBehind_flushes() {
+        store.encode("key", 1);
+        store.setWriteBehind(false);
+        assertEquals(1, delegate.decodeInt("key", 0));
+
+        store.encode("key", 2);
+        assertEquals(2, delegate.decodeInt("key", 0));
+    }
+}
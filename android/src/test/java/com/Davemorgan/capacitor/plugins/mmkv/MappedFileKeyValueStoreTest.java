@@ -0,0 +1,285 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedFileKeyValueStoreTest {
+
+    private static final String ID = "test";
+
+    private File dir;
+    private final List<String> errors = new ArrayList<>();
+    private final CapacitorMMKV.MMKVLogListener logListener = (level, message, mmkvId) -> {
+        if (level == CapacitorMMKV.LOG_LEVEL_ERROR) {
+            errors.add(message);
+        }
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("mmkv-test").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private MappedFileKeyValueStore open(boolean recoverOnError) {
+        return new MappedFileKeyValueStore(dir, ID, recoverOnError, logListener);
+    }
+
+    @Test
+    public void values_surviveReopen() {
+        MappedFileKeyValueStore store = open(true);
+        store.encode("string", "héllo");
+        store.encode("int", -42);
+        store.encode("bool", true);
+        store.encode("float", 1.5f);
+        store.encode("bytes", new byte[] { 1, 2, 3 });
+        store.encode("empty", "");
+        store.close();
+
+        store = open(true);
+        assertEquals("héllo", store.decodeString("string", null));
+        assertEquals(-42, store.decodeInt("int", 0));
+        assertTrue(store.decodeBool("bool", false));
+        assertEquals(1.5f, store.decodeFloat("float", 0f), 0f);
+        assertArrayEquals(new byte[] { 1, 2, 3 }, store.decodeBytes("bytes", null));
+        assertEquals("", store.decodeString("empty", null));
+        assertEquals(6, store.count());
+        assertTrue(errors.isEmpty());
+        store.close();
+    }
+
+    @Test
+    public void removals_surviveReopen() {
+        MappedFileKeyValueStore store = open(true);
+        for (int i = 0; i < 10; i++) {
+            store.encode("key-" + i, i);
+        }
+        store.removeValueForKey("key-0");
+        store.removeValuesForKeys(new String[] { "key-1", "key-2" });
+        store.encode("key-3", (String) null);
+        store.close();
+
+        store = open(true);
+        assertEquals(6, store.count());
+        assertFalse(store.containsKey("key-0"));
+        assertFalse(store.containsKey("key-2"));
+        assertFalse(store.containsKey("key-3"));
+        assertEquals(9, store.decodeInt("key-9", 0));
+        store.close();
+    }
+
+    @Test
+    public void randomWrites_matchModelAfterReopen() {
+        Random random = new Random(42);
+        Map<String, String> model = new HashMap<>();
+        MappedFileKeyValueStore store = open(true);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 2000; i++) {
+                String key = "k" + random.nextInt(300);
+                if (random.nextInt(5) == 0) {
+                    store.removeValueForKey(key);
+                    model.remove(key);
+                } else {
+                    char[] value = new char[random.nextInt(200)];
+                    Arrays.fill(value, (char) ('a' + random.nextInt(26)));
+                    store.encode(key, new String(value));
+                    model.put(key, new String(value));
+                }
+            }
+            if (round % 2 == 0) {
+                store.trim();
+            }
+            store.close();
+            store = open(true);
+            assertEquals(model.size(), store.count());
+            for (Map.Entry<String, String> entry : model.entrySet()) {
+                assertEquals(entry.getValue(), store.decodeString(entry.getKey(), null));
+            }
+        }
+        assertTrue(errors.isEmpty());
+        store.close();
+    }
+
+    @Test
+    public void trim_reclaimsOverwrittenSpace() {
+        MappedFileKeyValueStore store = open(true);
+        char[] large = new char[1000];
+        Arrays.fill(large, 'x');
+        for (int i = 0; i < 500; i++) {
+            store.encode("key", new String(large) + i);
+        }
+        long before = store.totalSize();
+        store.trim();
+        assertTrue(store.totalSize() < before);
+        assertTrue(store.actualSize() < 1100);
+        assertEquals(new String(large) + 499, store.decodeString("key", null));
+        store.close();
+
+        store = open(true);
+        assertEquals(new String(large) + 499, store.decodeString("key", null));
+        assertTrue(errors.isEmpty());
+        store.close();
+    }
+
+    @Test
+    public void crcFailure_discardsFileWithoutRecovery() throws IOException {
+        MappedFileKeyValueStore store = open(false);
+        store.encode("a", "value-a");
+        store.encode("b", "value-b");
+        store.close();
+        corruptLastByte();
+
+        store = open(false);
+        assertEquals(1, errors.size());
+        assertEquals(0, store.count());
+        store.close();
+    }
+
+    @Test
+    public void crcFailure_keepsDecodableRecordsWithRecovery() throws IOException {
+        MappedFileKeyValueStore store = open(true);
+        store.encode("a", "value-a");
+        store.encode("b", "value-b");
+        store.close();
+        corruptLastByte();
+
+        store = open(true);
+        assertEquals(1, errors.size());
+        assertEquals("value-a", store.decodeString("a", null));
+        assertTrue(store.containsKey("b"));
+        store.close();
+
+        // The recovered state was written back, so it opens cleanly now
+        errors.clear();
+        store = open(true);
+        assertTrue(errors.isEmpty());
+        assertEquals("value-a", store.decodeString("a", null));
+        store.close();
+    }
+
+    @Test
+    public void unconfirmedTail_fallsBackToLastSync() throws IOException {
+        MappedFileKeyValueStore store = open(true);
+        store.encode("a", "value-a");
+        store.sync();
+        store.encode("b", "value-b");
+        // Not closed: the tail written after the sync is torn, as after a crash
+        corruptLastByte();
+
+        MappedFileKeyValueStore reopened = open(true);
+        assertTrue(errors.isEmpty());
+        assertEquals("value-a", reopened.decodeString("a", null));
+        assertFalse(reopened.containsKey("b"));
+        reopened.close();
+    }
+
+    @Test
+    public void unconfirmedTail_fallsBackToCompactedLayout() throws IOException {
+        MappedFileKeyValueStore store = open(true);
+        store.encode("a", "value-a");
+        store.encode("b", "value-b");
+        store.encode("c", "value-c");
+        store.sync();
+        // A full write-back rewrites the file; it has to become the state recovery falls back to
+        store.removeValuesForKeys(new String[] { "a" });
+        store.encode("d", "value-d");
+        corruptLastByte();
+
+        MappedFileKeyValueStore reopened = open(true);
+        assertTrue(errors.isEmpty());
+        assertFalse(reopened.containsKey("a"));
+        assertEquals("value-b", reopened.decodeString("b", null));
+        assertEquals("value-c", reopened.decodeString("c", null));
+        assertFalse(reopened.containsKey("d"));
+        reopened.close();
+    }
+
+    @Test
+    public void newerMetaVersion_isKept() throws IOException {
+        MappedFileKeyValueStore store = open(true);
+        store.encode("a", 1);
+        store.close();
+        writeMetaInt(4, 4);
+
+        store = open(true);
+        store.encode("b", 2);
+        store.trim();
+        store.close();
+        assertEquals(4, readMetaInt(4));
+    }
+
+    @Test
+    public void totalSize_isZeroAfterClose() {
+        MappedFileKeyValueStore store = open(true);
+        store.encode("a", 1);
+        assertTrue(store.totalSize() > 0);
+        store.close();
+        assertEquals(0, store.totalSize());
+    }
+
+    @Test
+    public void clearAll_emptiesStore() {
+        MappedFileKeyValueStore store = open(true);
+        for (int i = 0; i < 100; i++) {
+            store.encode("key-" + i, i);
+        }
+        store.clearAll();
+        assertEquals(0, store.count());
+        store.encode("after", 1);
+        store.close();
+
+        store = open(true);
+        assertEquals(1, store.count());
+        assertEquals(1, store.decodeInt("after", 0));
+        store.close();
+    }
+
+    // Flips the last byte of the data section, which belongs to the most recently appended record
+    private void corruptLastByte() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(new File(dir, ID), "rw")) {
+            int actualSize = Integer.reverseBytes(file.readInt());
+            long offset = 4 + actualSize - 1;
+            file.seek(offset);
+            int value = file.read();
+            file.seek(offset);
+            file.write(value ^ 0xFF);
+        }
+    }
+
+    private int readMetaInt(int offset) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(new File(dir, ID + ".crc"), "r")) {
+            file.seek(offset);
+            return Integer.reverseBytes(file.readInt());
+        }
+    }
+
+    private void writeMetaInt(int offset, int value) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(new File(dir, ID + ".crc"), "rw")) {
+            file.seek(offset);
+            file.writeInt(Integer.reverseBytes(value));
+        }
+    }
+}
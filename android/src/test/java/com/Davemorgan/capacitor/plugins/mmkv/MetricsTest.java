@@ -0,0 +1,86 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class MetricsTest {
+
+    private final Metrics metrics = new Metrics();
+
+    private static void assertWithinBucketError(long expected, long actual) {
+        assertTrue(actual + " < " + expected, actual >= expected);
+        assertTrue(actual + " > " + expected + " * 1.25", actual <= expected * 5 / 4);
+    }
+
+    @Test
+    public void buckets_coverEveryValueWithinTheirError() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            long value = i < 4096 ? i : random.nextLong() >>> (24 + random.nextInt(40));
+            int bucket = Metrics.bucket(value);
+            long upper = Metrics.upperBound(bucket);
+            assertTrue(value + " above its bucket", value <= upper);
+            assertTrue(value + " below its bucket", bucket == 0 || value > Metrics.upperBound(bucket - 1));
+            assertTrue(value + " bucket too wide", upper <= value + value / 4 + 1);
+        }
+        // Beyond the largest bucket, values are capped rather than overflowing the histogram
+        assertEquals(Metrics.bucket(Long.MAX_VALUE), Metrics.bucket(1L << 40));
+    }
+
+    @Test
+    public void percentiles_areUpperBoundsOfTheirRank() {
+        for (int i = 1; i <= 1000; i++) {
+            metrics.record("get", "a", i * 1000L, 0, 0);
+        }
+        OperationMetrics get = metrics.snapshot().operations.get("get");
+        assertEquals(1000, get.count);
+        assertWithinBucketError(500000, get.p50Nanos);
+        assertWithinBucketError(950000, get.p95Nanos);
+        assertWithinBucketError(990000, get.p99Nanos);
+        assertEquals(1000000, get.maxNanos);
+        // Never reported above the largest value seen
+        assertTrue(get.p99Nanos <= get.maxNanos);
+    }
+
+    @Test
+    public void instances_mergeIntoOperationTotals() {
+        metrics.record("set", "a", 100, 10, 0);
+        metrics.record("set", "a", 200, 20, 0);
+        metrics.record("set", "b", 300, 30, 0);
+        metrics.record("set", null, 400, 40, 0);
+        metrics.record("get", "b", 500, 0, 5);
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        OperationMetrics set = snapshot.operations.get("set");
+        assertEquals(4, set.count);
+        assertEquals(100, set.bytesIn);
+        assertEquals(400, set.maxNanos);
+        assertEquals(2, snapshot.instances.get("a").get("set").count);
+        assertEquals(30, snapshot.instances.get("a").get("set").bytesIn);
+        assertEquals(1, snapshot.instances.get("b").get("set").count);
+        assertEquals(5, snapshot.instances.get("b").get("get").bytesOut);
+        assertFalse(snapshot.instances.get("a").containsKey("get"));
+        assertEquals(2, snapshot.instances.size());
+    }
+
+    @Test
+    public void recording_fromSeveralThreadsLosesNothing() throws InterruptedException {
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    metrics.record("get", "a", i, 1, 0);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        OperationMetrics get = metrics.snapshot().operations.get("get");
+        assertEquals(40000, get.count);
+        assertEquals(40000, get.bytesIn);
+    }
+}
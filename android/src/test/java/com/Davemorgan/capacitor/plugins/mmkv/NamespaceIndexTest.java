@@ -0,0 +1,83 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+
+public class NamespaceIndexTest {
+
+    private final InMemoryKeyValueStore store = new InMemoryKeyValueStore("test");
+    private final NamespaceIndex index = new NamespaceIndex();
+
+    private void write(String namespacedKey) {
+        store.encode(namespacedKey, 1);
+        index.onWrite(namespacedKey, store);
+    }
+
+    private void remove(String namespacedKey) {
+        store.removeValueForKey(namespacedKey);
+        index.onWrite(namespacedKey, store);
+    }
+
+    private Set<String> keys(String namespace) {
+        return new HashSet<>(Arrays.asList(index.keys(namespace, store)));
+    }
+
+    @Test
+    public void firstUse_scansOnlyKeysOfTheNamespace() {
+        store.encode("user:name", 1);
+        store.encode("user:age", 1);
+        store.encode("username", 1);
+        store.encode("users:name", 1);
+        store.encode("plain", 1);
+        assertEquals(new HashSet<>(Arrays.asList("name", "age")), keys("user"));
+        assertEquals(2, index.count("user", store));
+    }
+
+    @Test
+    public void writesAndRemovals_keepIndexCurrent() {
+        assertEquals(0, index.count("user", store));
+        write("user:name");
+        write("user:name");
+        write("user:age");
+        write("other:name");
+        remove("user:age");
+        remove("user:missing");
+        assertEquals(new HashSet<>(Arrays.asList("name")), keys("user"));
+    }
+
+    @Test
+    public void nestedNamespaces_areIndexedSeparately() {
+        write("a:b:key");
+        write("a:key");
+        assertEquals(new HashSet<>(Arrays.asList("b:key", "key")), keys("a"));
+        assertEquals(new HashSet<>(Arrays.asList("key")), keys("a:b"));
+        write("a:b:other");
+        assertEquals(3, index.count("a", store));
+        assertEquals(2, index.count("a:b", store));
+    }
+
+    @Test
+    public void writeObservedBeforeStoreChange_isCorrectedByLaterUpdate() {
+        assertEquals(0, index.count("user", store));
+        // An update that ran before its mutation reached the store records what the store holds then
+        index.onWrite("user:name", store);
+        assertEquals(0, index.count("user", store));
+        store.encode("user:name", 1);
+        index.onWrite("user:name", store);
+        assertEquals(1, index.count("user", store));
+    }
+
+    @Test
+    public void clear_rescansOnNextUse() {
+        write("user:name");
+        assertEquals(1, index.count("user", store));
+        store.clearAll();
+        index.onClear();
+        store.encode("user:age", 1);
+        assertEquals(new HashSet<>(Arrays.asList("age")), keys("user"));
+    }
+}
@@ -0,0 +1,95 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ReadCacheTest {
+
+    private final ReadCache cache = new ReadCache(1 << 20);
+
+    private void put(String instance, String key, ValueType type, Object value) {
+        cache.put(ReadCache.cacheKey(instance, key), instance, type, value, cache.beginLoad());
+    }
+
+    private Object get(String instance, String key, ValueType type) {
+        return cache.get(ReadCache.cacheKey(instance, key), type);
+    }
+
+    @Test
+    public void cachedValue_isServedForItsType() {
+        put("a", "key", ValueType.STRING, "value");
+        assertEquals("value", get("a", "key", ValueType.STRING));
+        assertNull(get("a", "key", ValueType.INT));
+        assertNull(get("b", "key", ValueType.STRING));
+
+        ReadCache.Stats stats = cache.stats();
+        assertEquals(1, stats.hits);
+        assertEquals(2, stats.misses);
+        assertEquals(1, stats.entries);
+    }
+
+    @Test
+    public void absentValue_isCachedAsNegative() {
+        put("a", "missing", ValueType.INT, null);
+        assertSame(ReadCache.ABSENT, get("a", "missing", ValueType.INT));
+        // A miss for one type says nothing about the others
+        assertNull(get("a", "missing", ValueType.STRING));
+        assertEquals(1, cache.stats().negativeHits);
+    }
+
+    @Test
+    public void invalidate_dropsOnlyThatKey() {
+        put("a", "one", ValueType.INT, 1);
+        put("a", "two", ValueType.INT, 2);
+        cache.invalidate(ReadCache.cacheKey("a", "one"));
+        assertNull(get("a", "one", ValueType.INT));
+        assertEquals(2, get("a", "two", ValueType.INT));
+        assertEquals(1, cache.stats().invalidations);
+    }
+
+    @Test
+    public void invalidateInstance_dropsOnlyThatInstance() {
+        put("a", "key", ValueType.INT, 1);
+        put("ab", "key", ValueType.INT, 2);
+        put("", "key", ValueType.INT, 3);
+        cache.invalidateInstance("a");
+        assertNull(get("a", "key", ValueType.INT));
+        assertEquals(2, get("ab", "key", ValueType.INT));
+        assertEquals(3, get("", "key", ValueType.INT));
+    }
+
+    @Test
+    public void loadOverlappingInvalidation_isNotCached() {
+        long loadEpoch = cache.beginLoad();
+        // The value was read from the store, then a write invalidated the key before the load finished
+        cache.invalidate(ReadCache.cacheKey("a", "key"));
+        cache.put(ReadCache.cacheKey("a", "key"), "a", ValueType.STRING, "stale", loadEpoch);
+        assertNull(get("a", "key", ValueType.STRING));
+    }
+
+    @Test
+    public void cachedBytes_areCopied() {
+        byte[] value = { 1, 2, 3 };
+        put("a", "key", ValueType.BYTES, value);
+        value[0] = 9;
+        byte[] read = (byte[]) get("a", "key", ValueType.BYTES);
+        assertArrayEquals(new byte[] { 1, 2, 3 }, read);
+        read[1] = 9;
+        assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) get("a", "key", ValueType.BYTES));
+    }
+
+    @Test
+    public void entries_stayWithinMaxBytes() {
+        ReadCache small = new ReadCache(16 * 1024);
+        for (int i = 0; i < 2000; i++) {
+            String key = ReadCache.cacheKey("a", "key-" + i);
+            small.put(key, "a", ValueType.STRING, "value-" + i, small.beginLoad());
+            small.get(key, ValueType.STRING);
+        }
+        ReadCache.Stats stats = small.stats();
+        assertTrue(stats.bytes <= stats.maxBytes);
+        assertTrue(stats.evictions > 0);
+        assertEquals(2000, stats.entries + stats.evictions);
+    }
+}
@@ -0,0 +1,55 @@
+package com.Davemorgan.capacitor.plugins.mmkv;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TaggedValueCodecTest {
+
+    @Test
+    public void values_roundTrip() {
+        assertRoundTrip(ValueType.STRING, "héllo");
+        assertRoundTrip(ValueType.STRING, "");
+        assertRoundTrip(ValueType.INT, Integer.MIN_VALUE);
+        assertRoundTrip(ValueType.INT, -1);
+        assertRoundTrip(ValueType.BOOL, true);
+        assertRoundTrip(ValueType.BOOL, false);
+        assertRoundTrip(ValueType.FLOAT, -1.5f);
+        assertRoundTrip(ValueType.FLOAT, Float.NaN);
+
+        byte[] encoded = TaggedValueCodec.encode(ValueType.BYTES, new byte[] { 0, 1, -1 });
+        assertEquals(ValueType.BYTES, TaggedValueCodec.typeOf(encoded));
+        assertArrayEquals(new byte[] { 0, 1, -1 }, (byte[]) TaggedValueCodec.decode(encoded));
+        assertArrayEquals(new byte[0], (byte[]) TaggedValueCodec.decode(TaggedValueCodec.encode(ValueType.BYTES, new byte[0])));
+    }
+
+    @Test
+    public void lengthNotFittingTag_isRejected() {
+        assertMalformed(new byte[] { 2, 0, 0, 0 }); // int, one byte short
+        assertMalformed(new byte[] { 2, 0, 0, 0, 0, 0 });
+        assertMalformed(new byte[] { 3 }); // bool without its byte
+        assertMalformed(new byte[] { 3, 1, 1 });
+        assertMalformed(new byte[] { 4, 0 }); // float
+        assertMalformed(new byte[] { 4, 0, 0, 0, 0, 0 });
+    }
+
+    @Test
+    public void unknownOrMissingTag_isRejected() {
+        assertMalformed(null);
+        assertMalformed(new byte[0]);
+        assertMalformed(new byte[] { 0, 1 });
+        assertMalformed(new byte[] { 6, 1 });
+        assertMalformed(new byte[] { -1, 1, 2, 3, 4 });
+    }
+
+    private static void assertRoundTrip(ValueType type, Object value) {
+        byte[] encoded = TaggedValueCodec.encode(type, value);
+        assertEquals(type, TaggedValueCodec.typeOf(encoded));
+        assertEquals(value, TaggedValueCodec.decode(encoded));
+    }
+
+    private static void assertMalformed(byte[] encoded) {
+        assertNull(TaggedValueCodec.typeOf(encoded));
+        assertNull(TaggedValueCodec.decode(encoded));
+    }
+}
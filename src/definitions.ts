@@ -14,28 +14,217 @@ export interface MMKVLogEvent {
   mmkvId?: string;
 }
 
+// One key set or removed, or with change 'clear', a cleared namespace (or whole instance without namespace).
+// mmkvId is 'mmkv.default' for the default instance.
+export interface MMKVKeyChange {
+  mmkvId: string;
+  namespace?: string;
+  key?: string;
+  change: 'set' | 'remove' | 'clear';
+  watchIds: number[]; // the watches the change matched
+}
+
+// The changes of one coalescing window, latest change per key
+export interface MMKVKeyChangedEvent {
+  changes: MMKVKeyChange[];
+}
+
+// Log entries are buffered natively and delivered in batches; dropped counts the entries discarded since
+// the previous batch (buffer full, rate limit or sampling)
+export interface MMKVLogBatchEvent {
+  entries: MMKVLogEvent[];
+  dropped: number;
+}
+
+export interface MMKVLogStats {
+  delivered: number;
+  droppedOverflow: number;
+  droppedRateLimited: number;
+  droppedSampled: number;
+}
+
+// Percentiles are accurate to 25%; bytes count one per string character
+export interface MMKVOperationMetrics {
+  count: number;
+  bytesIn: number;
+  bytesOut: number;
+  p50Ms: number;
+  p95Ms: number;
+  p99Ms: number;
+  maxMs: number;
+}
+
+// Recorded since startedAt (epoch ms), per operation name and per instance and operation name
+export interface MMKVMetrics {
+  startedAt: number;
+  operations: Record<string, MMKVOperationMetrics>;
+  instances: Record<string, Record<string, MMKVOperationMetrics>>;
+}
+
+// Android only. Attached as `timing` to the result of data calls while per-call timing is on (setters then resolve with
+// an object too). queueWaitMs is only present when the call options carried sentAt (epoch ms).
+export interface MMKVCallTiming {
+  queueWaitMs?: number;
+  parseMs: number;
+  resolveMs: number;
+  storageMs: number;
+  serializeMs: number;
+}
+
+export type MMKVValueType = 'string' | 'int' | 'bool' | 'float' | 'bytes';
+
+export type MMKVValue = string | number | boolean | number[];
+
+export interface MMKVKeyDescriptor {
+  key: string;
+  type?: MMKVValueType; // defaults to 'string'
+  mmkvId?: string;
+  namespace?: string;
+  alias?: string; // result map key, defaults to `namespace:key`
+}
+
+export interface MMKVEntry {
+  key: string;
+  type?: MMKVValueType; // defaults to 'string'
+  value: MMKVValue | null;
+  mmkvId?: string;
+  namespace?: string;
+}
+
+export type MMKVPipelineOperation =
+  | { op: 'setString'; key: string; value: string; mmkvId?: string; namespace?: string }
+  | { op: 'setInt' | 'setFloat'; key: string; value: number; mmkvId?: string; namespace?: string }
+  | { op: 'setBool'; key: string; value: boolean; mmkvId?: string; namespace?: string }
+  | { op: 'setBytes'; key: string; value: number[]; mmkvId?: string; namespace?: string }
+  | {
+      op: 'getString' | 'getInt' | 'getBool' | 'getFloat' | 'getBytes' | 'removeValueForKey' | 'contains';
+      key: string;
+      mmkvId?: string;
+      namespace?: string;
+    }
+  | { op: 'removeValuesForKeys'; keys: string[]; mmkvId?: string; namespace?: string }
+  | { op: 'getAllKeys' | 'count' | 'totalSize' | 'clearAll'; mmkvId?: string; namespace?: string }
+  | { op: 'setLogLevel'; level: MMKVLogLevel }
+  | { op: 'getLogLevel' };
+
+// Carries the same property the matching single-call method resolves with, or `error` if the operation failed
+export interface MMKVPipelineResult {
+  value?: MMKVValue | null;
+  exists?: boolean;
+  count?: number;
+  size?: number;
+  keys?: string[];
+  level?: MMKVLogLevel;
+  error?: string;
+}
+
+export interface MMKVCacheStats {
+  enabled: boolean;
+  hits?: number;
+  negativeHits?: number; // hits that answered "key absent"
+  misses?: number;
+  evictions?: number;
+  invalidations?: number;
+  entries?: number;
+  bytes?: number;
+  maxBytes?: number;
+}
+
+// When writes are forced to disk: async leaves it to the OS (synced on pause/stop), syncOnWrite syncs every
+// write, periodic syncs every syncIntervalMs, manual only syncs on sync() calls
+export type MMKVDurability = 'async' | 'syncOnWrite' | 'periodic' | 'manual';
+
+export interface MMKVInstanceOptions {
+  mmkvId?: string;
+  // Store every value with a type tag so reads take a single lookup and getValue can report the type.
+  // Remembered across launches; values written before it was enabled are still readable with typed getters.
+  // Turning it off is rejected while the instance holds data.
+  typeTagged?: boolean;
+  // Give every namespace of this instance its own MMKV file. Keys written with the old "namespace:key"
+  // prefix are moved over as they are written. Remembered across launches; turning it off is rejected
+  // while any namespace file holds data.
+  namespaceInstances?: boolean;
+  // Buffer writes in memory, keeping only the latest value per key, and write them out in the background.
+  // Reads see buffered values immediately; buffers are flushed when the app is paused.
+  writeBehind?: boolean;
+  durability?: MMKVDurability;
+  syncIntervalMs?: number; // required for 'periodic'
+}
+
+export interface MMKVInitTiming {
+  ready: boolean;
+  backendMs?: number; // native library load and MMKV.initialize
+  openDefaultMs?: number; // mapping the default instance
+  loadToReadyMs?: number; // from plugin load until calls are served
+  parkedCalls: number; // calls that arrived before initialization finished
+  error?: string;
+  // Once the startup prewarm is done; profiledKeys came from the previous session's access profile
+  prewarm?: { ms: number; instances: number; keys: number; found: number; profiledKeys: number };
+}
+
+export interface MMKVTrimStats {
+  runs: number; // scheduled maintenance runs
+  trims: number; // instances trimmed, scheduled or explicit
+  reclaimedBytes: number;
+  lastRunMs: number;
+}
+
 export interface CapacitorMMKVPlugin {
-  setString(options: { key: string; value: string; mmkvId?: string; namespace?: string }): Promise<void>;
-  getString(options: { key: string; mmkvId?: string; namespace?: string }): Promise<{ value: string | null }>;
-  setInt(options: { key: string; value: number; mmkvId?: string; namespace?: string }): Promise<void>;
-  getInt(options: { key: string; mmkvId?: string; namespace?: string }): Promise<{ value: number | null }>;
-  setBool(options: { key: string; value: boolean; mmkvId?: string; namespace?: string }): Promise<void>;
-  getBool(options: { key: string; mmkvId?: string; namespace?: string }): Promise<{ value: boolean | null }>;
-  setFloat(options: { key: string; value: number; mmkvId?: string; namespace?: string }): Promise<void>;
-  getFloat(options: { key: string; mmkvId?: string; namespace?: string }): Promise<{ value: number | null }>;
-  setBytes(options: { key: string; value: Uint8Array; mmkvId?: string; namespace?: string }): Promise<void>;
-  getBytes(options: { key: string; mmkvId?: string; namespace?: string }): Promise<{ value: Uint8Array | null }>;
-  removeValueForKey(options: { key: string; mmkvId?: string; namespace?: string }): Promise<void>;
-  removeValuesForKeys(options: { keys: string[]; mmkvId?: string; namespace?: string }): Promise<void>;
-  getAllKeys(options?: { mmkvId?: string; namespace?: string }): Promise<{ keys: string[] }>;
-  contains(options: { key: string; mmkvId?: string; namespace?: string }): Promise<{ exists: boolean }>;
-  count(options?: { mmkvId?: string; namespace?: string }): Promise<{ count: number }>;
-  totalSize(options?: { mmkvId?: string; namespace?: string }): Promise<{ size: number }>;
-  clearAll(options?: { mmkvId?: string; namespace?: string }): Promise<void>;
+  setString(options: { key: string; value: string; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ timing?: MMKVCallTiming }>;
+  getString(options: { key: string; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ value: string | null; timing?: MMKVCallTiming }>;
+  setInt(options: { key: string; value: number; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ timing?: MMKVCallTiming }>;
+  getInt(options: { key: string; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ value: number | null; timing?: MMKVCallTiming }>;
+  setBool(options: { key: string; value: boolean; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ timing?: MMKVCallTiming }>;
+  getBool(options: { key: string; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ value: boolean | null; timing?: MMKVCallTiming }>;
+  setFloat(options: { key: string; value: number; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ timing?: MMKVCallTiming }>;
+  getFloat(options: { key: string; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ value: number | null; timing?: MMKVCallTiming }>;
+  setBytes(options: { key: string; value: Uint8Array; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ timing?: MMKVCallTiming }>;
+  getBytes(options: { key: string; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ value: Uint8Array | null; timing?: MMKVCallTiming }>;
+  removeValueForKey(options: { key: string; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ timing?: MMKVCallTiming }>;
+  removeValuesForKeys(options: { keys: string[]; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ timing?: MMKVCallTiming }>;
+  getAllKeys(options?: { mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ keys: string[]; timing?: MMKVCallTiming }>;
+  contains(options: { key: string; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ exists: boolean; timing?: MMKVCallTiming }>;
+  count(options?: { mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ count: number; timing?: MMKVCallTiming }>;
+  totalSize(options?: { mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ size: number; timing?: MMKVCallTiming }>;
+  clearAll(options?: { mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ timing?: MMKVCallTiming }>;
+
+  // Android only
+  getValue(options: { key: string; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ value: MMKVValue | null; type: MMKVValueType | null; timing?: MMKVCallTiming }>;
+  openHandle(options: { key?: string; mmkvId?: string; namespace?: string }): Promise<{ handle: number }>;
+  closeHandle(options: { handle: number }): Promise<void>;
+  getByHandle(options: { handle: number; type?: MMKVValueType; key?: string; sentAt?: number }): Promise<{ value: MMKVValue | null; timing?: MMKVCallTiming }>;
+  setByHandle(options: { handle: number; type?: MMKVValueType; value: MMKVValue | null; key?: string; sentAt?: number }): Promise<{ timing?: MMKVCallTiming }>;
+  getMany(options: { keys: MMKVKeyDescriptor[]; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ values: Record<string, MMKVValue | null>; timing?: MMKVCallTiming }>;
+  setMany(options: { entries: MMKVEntry[]; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ timing?: MMKVCallTiming }>;
+  pipeline(options: { operations: MMKVPipelineOperation[]; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ results: MMKVPipelineResult[]; timing?: MMKVCallTiming }>;
   
+  // Android only
+  configureInstance(options: MMKVInstanceOptions): Promise<void>;
+  openInstance(options: { mmkvId: string }): Promise<void>; // resolves once the file is mapped
+  closeInstance(options: { mmkvId: string }): Promise<{ closed: boolean }>; // reopened on next use
+  sync(options?: { mmkvId?: string }): Promise<void>; // all instances without mmkvId
+  trim(options?: { mmkvId?: string }): Promise<{ reclaimedBytes: number }>; // all open instances without mmkvId
+  getTrimStats(): Promise<MMKVTrimStats>;
+  configureCache(options: { maxBytes: number }): Promise<void>; // 0 disables the read cache
+  getCacheStats(): Promise<MMKVCacheStats>;
+  getInitTiming(): Promise<MMKVInitTiming>;
+  configureMetrics(options: { enabled: boolean; reportIntervalMs?: number }): Promise<void>; // off discards what was recorded
+  getMetrics(options?: { reset?: boolean }): Promise<MMKVMetrics>;
+  setCallTiming(options: { enabled: boolean }): Promise<void>;
+
   setLogLevel(options: { level: MMKVLogLevel }): Promise<void>;
   getLogLevel(): Promise<{ level: MMKVLogLevel }>;
+  getLogStats(): Promise<MMKVLogStats>; // Android only
+  exportLogs(): Promise<{ files: { path: string; size: number }[] }>; // Android only; oldest first; requires logging.file
   
+  // Android only. Filters left out match anything; pass mmkvId 'mmkv.default' to watch only the default instance
+  watchKeys(options?: { mmkvId?: string; namespace?: string; keyPrefix?: string }): Promise<{ watchId: number }>;
+  unwatchKeys(options: { watchId: number }): Promise<void>;
+
   addListener(eventName: 'mmkvLog', listenerFunc: (event: MMKVLogEvent) => void): Promise<any>;
+  // mmkvLogBatch, metrics and keyChanged are Android only
+  addListener(eventName: 'mmkvLogBatch', listenerFunc: (event: MMKVLogBatchEvent) => void): Promise<any>;
+  addListener(eventName: 'metrics', listenerFunc: (event: MMKVMetrics) => void): Promise<any>;
+  addListener(eventName: 'keyChanged', listenerFunc: (event: MMKVKeyChangedEvent) => void): Promise<any>;
   removeAllListeners(): Promise<void>;
 }
@@ -1,6 +1,6 @@
 import { registerPlugin } from '@capacitor/core';
 
-import type { CapacitorMMKVPlugin, MMKVLogEvent } from './definitions';
+import type { CapacitorMMKVPlugin, MMKVLogBatchEvent, MMKVLogEvent } from './definitions';
 import { MMKVLogLevel } from './definitions';
 
 const CapacitorMMKV = registerPlugin<CapacitorMMKVPlugin>('CapacitorMMKV', {
@@ -9,14 +9,15 @@ const CapacitorMMKV = registerPlugin<CapacitorMMKVPlugin>('CapacitorMMKV', {
 
 // Convenience wrapper for setting up logging
 export class MMKVLogger {
-  private static listener: ((event: MMKVLogEvent) => void) | null = null;
+  private static listener: ((event: MMKVLogBatchEvent) => void) | null = null;
 
   static async enableLogging(level: MMKVLogLevel = MMKVLogLevel.Info, callback?: (event: MMKVLogEvent) => void): Promise<void> {
     await CapacitorMMKV.setLogLevel({ level });
     
     if (callback) {
-      this.listener = callback;
-      await CapacitorMMKV.addListener('mmkvLog', this.listener);
+      // Batches cross the bridge once per flush instead of once per line
+      this.listener = (batch) => batch.entries.forEach(callback);
+      await CapacitorMMKV.addListener('mmkvLogBatch', this.listener);
     }
   }
 
@@ -1,84 +1,190 @@
 import { WebPlugin } from '@capacitor/core';
 
-import type { CapacitorMMKVPlugin, MMKVLogEvent } from './definitions';
+import type {
+  CapacitorMMKVPlugin,
+  MMKVCacheStats,
+  MMKVCallTiming,
+  MMKVEntry,
+  MMKVInitTiming,
+  MMKVInstanceOptions,
+  MMKVKeyChangedEvent,
+  MMKVKeyDescriptor,
+  MMKVLogBatchEvent,
+  MMKVLogEvent,
+  MMKVLogStats,
+  MMKVMetrics,
+  MMKVPipelineOperation,
+  MMKVPipelineResult,
+  MMKVTrimStats,
+  MMKVValue,
+  MMKVValueType,
+} from './definitions';
 import { MMKVLogLevel } from './definitions';
 
 export class CapacitorMMKVWeb extends WebPlugin implements CapacitorMMKVPlugin {
-  async setString(_options: { key: string; value: string; mmkvId?: string; namespace?: string }): Promise<void> {
+  async setString(_options: { key: string; value: string; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ timing?: MMKVCallTiming }> {
     console.warn('CapacitorMMKV.setString is not available on web');
+    return {};
   }
 
-  async getString(_options: { key: string; mmkvId?: string; namespace?: string }): Promise<{ value: string | null }> {
+  async getString(_options: { key: string; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ value: string | null; timing?: MMKVCallTiming }> {
     console.warn('CapacitorMMKV.getString is not available on web');
     return { value: null };
   }
 
-  async setInt(_options: { key: string; value: number; mmkvId?: string; namespace?: string }): Promise<void> {
+  async setInt(_options: { key: string; value: number; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ timing?: MMKVCallTiming }> {
     console.warn('CapacitorMMKV.setInt is not available on web');
+    return {};
   }
 
-  async getInt(_options: { key: string; mmkvId?: string; namespace?: string }): Promise<{ value: number | null }> {
+  async getInt(_options: { key: string; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ value: number | null; timing?: MMKVCallTiming }> {
     console.warn('CapacitorMMKV.getInt is not available on web');
     return { value: null };
   }
 
-  async setBool(_options: { key: string; value: boolean; mmkvId?: string; namespace?: string }): Promise<void> {
+  async setBool(_options: { key: string; value: boolean; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ timing?: MMKVCallTiming }> {
     console.warn('CapacitorMMKV.setBool is not available on web');
+    return {};
   }
 
-  async getBool(_options: { key: string; mmkvId?: string; namespace?: string }): Promise<{ value: boolean | null }> {
+  async getBool(_options: { key: string; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ value: boolean | null; timing?: MMKVCallTiming }> {
     console.warn('CapacitorMMKV.getBool is not available on web');
     return { value: null };
   }
 
-  async setFloat(_options: { key: string; value: number; mmkvId?: string; namespace?: string }): Promise<void> {
+  async setFloat(_options: { key: string; value: number; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ timing?: MMKVCallTiming }> {
     console.warn('CapacitorMMKV.setFloat is not available on web');
+    return {};
   }
 
-  async getFloat(_options: { key: string; mmkvId?: string; namespace?: string }): Promise<{ value: number | null }> {
+  async getFloat(_options: { key: string; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ value: number | null; timing?: MMKVCallTiming }> {
     console.warn('CapacitorMMKV.getFloat is not available on web');
     return { value: null };
   }
 
-  async setBytes(_options: { key: string; value: Uint8Array; mmkvId?: string; namespace?: string }): Promise<void> {
+  async setBytes(_options: { key: string; value: Uint8Array; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ timing?: MMKVCallTiming }> {
     console.warn('CapacitorMMKV.setBytes is not available on web');
+    return {};
   }
 
-  async getBytes(_options: { key: string; mmkvId?: string; namespace?: string }): Promise<{ value: Uint8Array | null }> {
+  async getBytes(_options: { key: string; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ value: Uint8Array | null; timing?: MMKVCallTiming }> {
     console.warn('CapacitorMMKV.getBytes is not available on web');
     return { value: null };
   }
 
-  async removeValueForKey(_options: { key: string; mmkvId?: string; namespace?: string }): Promise<void> {
+  async removeValueForKey(_options: { key: string; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ timing?: MMKVCallTiming }> {
     console.warn('CapacitorMMKV.removeValueForKey is not available on web');
+    return {};
   }
 
-  async removeValuesForKeys(_options: { keys: string[]; mmkvId?: string; namespace?: string }): Promise<void> {
+  async removeValuesForKeys(_options: { keys: string[]; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ timing?: MMKVCallTiming }> {
     console.warn('CapacitorMMKV.removeValuesForKeys is not available on web');
+    return {};
   }
 
-  async getAllKeys(_options?: { mmkvId?: string; namespace?: string }): Promise<{ keys: string[] }> {
+  async getAllKeys(_options?: { mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ keys: string[]; timing?: MMKVCallTiming }> {
     console.warn('CapacitorMMKV.getAllKeys is not available on web');
     return { keys: [] };
   }
 
-  async contains(_options: { key: string; mmkvId?: string; namespace?: string }): Promise<{ exists: boolean }> {
+  async contains(_options: { key: string; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ exists: boolean; timing?: MMKVCallTiming }> {
     console.warn('CapacitorMMKV.contains is not available on web');
     return { exists: false };
   }
 
-  async count(_options?: { mmkvId?: string; namespace?: string }): Promise<{ count: number }> {
+  async count(_options?: { mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ count: number; timing?: MMKVCallTiming }> {
     console.warn('CapacitorMMKV.count is not available on web');
     return { count: 0 };
   }
 
-  async totalSize(_options?: { mmkvId?: string; namespace?: string }): Promise<{ size: number }> {
+  async totalSize(_options?: { mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ size: number; timing?: MMKVCallTiming }> {
     console.warn('CapacitorMMKV.totalSize is not available on web');
     return { size: 0 };
   }
 
-  async clearAll(_options?: { mmkvId?: string; namespace?: string }): Promise<void> {
+  async clearAll(_options?: { mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ timing?: MMKVCallTiming }> {
     console.warn('CapacitorMMKV.clearAll is not available on web');
+    return {};
+  }
+
+  async getValue(_options: { key: string; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ value: MMKVValue | null; type: MMKVValueType | null; timing?: MMKVCallTiming }> {
+    console.warn('CapacitorMMKV.getValue is not available on web');
+    return { value: null, type: null };
+  }
+
+  async openHandle(_options: { key?: string; mmkvId?: string; namespace?: string }): Promise<{ handle: number }> {
+    console.warn('CapacitorMMKV.openHandle is not available on web');
+    return { handle: -1 };
+  }
+
+  async closeHandle(_options: { handle: number }): Promise<void> {
+    console.warn('CapacitorMMKV.closeHandle is not available on web');
+  }
+
+  async getByHandle(_options: { handle: number; type?: MMKVValueType; key?: string; sentAt?: number }): Promise<{ value: MMKVValue | null; timing?: MMKVCallTiming }> {
+    console.warn('CapacitorMMKV.getByHandle is not available on web');
+    return { value: null };
+  }
+
+  async setByHandle(_options: { handle: number; type?: MMKVValueType; value: MMKVValue | null; key?: string; sentAt?: number }): Promise<{ timing?: MMKVCallTiming }> {
+    console.warn('CapacitorMMKV.setByHandle is not available on web');
+    return {};
+  }
+
+  async getMany(_options: { keys: MMKVKeyDescriptor[]; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ values: Record<string, MMKVValue | null>; timing?: MMKVCallTiming }> {
+    console.warn('CapacitorMMKV.getMany is not available on web');
+    return { values: {} };
+  }
+
+  async setMany(_options: { entries: MMKVEntry[]; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ timing?: MMKVCallTiming }> {
+    console.warn('CapacitorMMKV.setMany is not available on web');
+    return {};
+  }
+
+  async pipeline(_options: { operations: MMKVPipelineOperation[]; mmkvId?: string; namespace?: string; sentAt?: number }): Promise<{ results: MMKVPipelineResult[]; timing?: MMKVCallTiming }> {
+    console.warn('CapacitorMMKV.pipeline is not available on web');
+    return { results: [] };
+  }
+
+  async configureInstance(_options: MMKVInstanceOptions): Promise<void> {
+    console.warn('CapacitorMMKV.configureInstance is not available on web');
+  }
+
+  async openInstance(_options: { mmkvId: string }): Promise<void> {
+    console.warn('CapacitorMMKV.openInstance is not available on web');
+  }
+
+  async closeInstance(_options: { mmkvId: string }): Promise<{ closed: boolean }> {
+    console.warn('CapacitorMMKV.closeInstance is not available on web');
+    return { closed: false };
+  }
+
+  async sync(_options?: { mmkvId?: string }): Promise<void> {
+    console.warn('CapacitorMMKV.sync is not available on web');
+  }
+
+  async trim(_options?: { mmkvId?: string }): Promise<{ reclaimedBytes: number }> {
+    console.warn('CapacitorMMKV.trim is not available on web');
+    return { reclaimedBytes: 0 };
+  }
+
+  async getTrimStats(): Promise<MMKVTrimStats> {
+    console.warn('CapacitorMMKV.getTrimStats is not available on web');
+    return { runs: 0, trims: 0, reclaimedBytes: 0, lastRunMs: 0 };
+  }
+
+  async configureCache(_options: { maxBytes: number }): Promise<void> {
+    console.warn('CapacitorMMKV.configureCache is not available on web');
+  }
+
+  async getCacheStats(): Promise<MMKVCacheStats> {
+    console.warn('CapacitorMMKV.getCacheStats is not available on web');
+    return { enabled: false };
+  }
+
+  async getInitTiming(): Promise<MMKVInitTiming> {
+    console.warn('CapacitorMMKV.getInitTiming is not available on web');
+    return { ready: true, parkedCalls: 0 };
   }
 
   async setLogLevel(_options: { level: MMKVLogLevel }): Promise<void> {
@@ -90,7 +196,46 @@ export class CapacitorMMKVWeb extends WebPlugin implements CapacitorMMKVPlugin {
     return { level: MMKVLogLevel.Off };
   }
 
-  async addListener(_eventName: 'mmkvLog', _listenerFunc: (event: MMKVLogEvent) => void): Promise<any> {
+  async getLogStats(): Promise<MMKVLogStats> {
+    console.warn('CapacitorMMKV.getLogStats is not available on web');
+    return { delivered: 0, droppedOverflow: 0, droppedRateLimited: 0, droppedSampled: 0 };
+  }
+
+  async configureMetrics(_options: { enabled: boolean; reportIntervalMs?: number }): Promise<void> {
+    console.warn('CapacitorMMKV.configureMetrics is not available on web');
+  }
+
+  async getMetrics(_options?: { reset?: boolean }): Promise<MMKVMetrics> {
+    console.warn('CapacitorMMKV.getMetrics is not available on web');
+    return { startedAt: Date.now(), operations: {}, instances: {} };
+  }
+
+  async setCallTiming(_options: { enabled: boolean }): Promise<void> {
+    console.warn('CapacitorMMKV.setCallTiming is not available on web');
+  }
+
+  async exportLogs(): Promise<{ files: { path: string; size: number }[] }> {
+    console.warn('CapacitorMMKV.exportLogs is not available on web');
+    return { files: [] };
+  }
+
+  async watchKeys(_options?: { mmkvId?: string; namespace?: string; keyPrefix?: string }): Promise<{ watchId: number }> {
+    console.warn('CapacitorMMKV.watchKeys is not available on web');
+    return { watchId: 0 };
+  }
+
+  async unwatchKeys(_options: { watchId: number }): Promise<void> {
+    console.warn('CapacitorMMKV.unwatchKeys is not available on web');
+  }
+
+  async addListener(
+    _eventName: 'mmkvLog' | 'mmkvLogBatch' | 'metrics' | 'keyChanged',
+    _listenerFunc:
+      | ((event: MMKVLogEvent) => void)
+      | ((event: MMKVLogBatchEvent) => void)
+      | ((event: MMKVMetrics) => void)
+      | ((event: MMKVKeyChangedEvent) => void),
+  ): Promise<any> {
     console.warn('CapacitorMMKV.addListener is not available on web');
     return Promise.resolve();
   }